@@ -0,0 +1,38 @@
+package minesweeper;
+import java.io.IOException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner
+ * Runs the JMH benchmarks with the gc profiler always on, so every result
+ * comes with the bytes allocated per operation as well as the time taken
+ *
+ * @author Charlie Gregg
+ */
+public class BenchmarkRunner {
+    /**
+     * Run the benchmarks from the command line
+     * Arguments: any JMH options, such as a regex of the benchmarks to run, -p size=1000 or -l to list them
+     */
+    public static void main(String args[]) throws IOException, RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+        Runner runner = new Runner(new OptionsBuilder()
+            .parent(options)
+            .addProfiler(GCProfiler.class)
+            .build());
+        if (options.shouldList()) {
+            runner.list();
+        } else {
+            runner.run();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package minesweeper;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * BoardBenchmark
+ * Times building and planting boards, the cascade through an opening,
+ * and finding the neighbours of a tile
+ *
+ * @author Charlie Gregg
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class BoardBenchmark {
+    final static long SEED = 42; // seed shared by every board built here
+
+    /**
+     * Build a board and place its mines, keeping the middle tile free
+     * @param width the width of the board
+     * @param height the height of the board
+     * @param mineChance the chance of each tile being a mine
+     * @param planting how to place the mines
+     * @return the populated board
+     */
+    static Sweeper populated(int width, int height, double mineChance, Sweeper.Planting planting) {
+        Sweeper board = new Sweeper(mineChance, width, height, SEED);
+        board.setPlanting(planting);
+        board.populate(new MineTile(width / 2, height / 2));
+        return board;
+    }
+
+    /**
+     * A board of one of the game's difficulties
+     */
+    @State(Scope.Thread)
+    public static class DifficultyBoard {
+        @Param
+        Minesweeper.Difficulty difficulty; // the size and mine chance of the board, every difficulty unless given
+        @Param
+        Sweeper.Planting planting; // how the mines are placed, every way unless given
+    }
+    /**
+     * A square board far larger than the game's own, at a chosen mine chance.
+     * Boards without guesses are left out, checking them by playing them whole takes too long
+     */
+    @State(Scope.Thread)
+    public static class LargeBoard {
+        @Param({"1000", "4000"})
+        int size; // the width and height of the board
+        @Param({"0.05", "0.2"})
+        double density; // the chance of each tile being a mine
+        @Param({"SAMPLED", "SHUFFLED", "SHUFFLED_OPENING"})
+        Sweeper.Planting planting; // how the mines are placed
+    }
+    /**
+     * A freshly planted sparse board with nothing opened, rebuilt before every cascade
+     */
+    @State(Scope.Thread)
+    public static class CascadeBoard {
+        @Param({"1000", "4000"})
+        int size; // the width and height of the board
+        @Param({"0.01", "0.05"})
+        double density; // the chance of each tile being a mine
+        Sweeper board; // the board to open
+        MineTile middle; // the tile to open, kept free of mines
+
+        @Setup(Level.Invocation)
+        public void plant() {
+            this.board = BoardBenchmark.populated(this.size, this.size, this.density, Sweeper.Planting.SHUFFLED_OPENING);
+            this.middle = new MineTile(this.size / 2, this.size / 2);
+        }
+    }
+    /**
+     * A planted board stepped through tile by tile, so each call asks about a different tile
+     */
+    @State(Scope.Thread)
+    public static class NeighbourBoard {
+        @Param
+        Minesweeper.Difficulty difficulty; // the size and mine chance of the board
+        Sweeper board; // the board whose tiles are visited
+        int[] buffer; // reused buffer of neighbouring indices
+        int tiles; // the number of tiles on the board
+        int next; // the index of the next tile to visit
+
+        @Setup
+        public void plant() {
+            this.board = BoardBenchmark.populated(this.difficulty.width, this.difficulty.height,
+                this.difficulty.mineChance, Sweeper.Planting.SHUFFLED);
+            this.buffer = new int[Sweeper.MAX_SURROUNDING];
+            this.tiles = this.difficulty.width * this.difficulty.height;
+            this.next = 0;
+        }
+        /**
+         * Get the next tile to visit, going back to the first after the last
+         * @return the index of the tile
+         */
+        int step() {
+            int index = this.next;
+            this.next = index + 1 == this.tiles ? 0 : index + 1;
+            return index;
+        }
+    }
+
+    @Benchmark
+    public Sweeper plantMines(DifficultyBoard state) {
+        return BoardBenchmark.populated(state.difficulty.width, state.difficulty.height, state.difficulty.mineChance, state.planting);
+    }
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Sweeper plantMinesLarge(LargeBoard state) {
+        return BoardBenchmark.populated(state.size, state.size, state.density, state.planting);
+    }
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int cascade(CascadeBoard state) {
+        return Minesweeper.open(state.board, state.middle) + state.board.remainingSpaces;
+    }
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Set<MineTile> getSurrounding(NeighbourBoard state) {
+        return state.board.getSurrounding(state.board.getTile(state.step()));
+    }
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int getSurroundingIndex(NeighbourBoard state) {
+        return state.board.getSurrounding(state.step(), state.buffer, false);
+    }
+    /**
+     * Find the neighbours of a tile by clamping a 3x3 block to the board on every call,
+     * the way the board did before it kept an offset table, to compare against
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int getSurroundingClamped(NeighbourBoard state) {
+        Sweeper board = state.board;
+        int index = state.step();
+        int x = index % board.width;
+        int y = index / board.width;
+        int count = 0;
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, board.height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, board.width - 1); nx++) {
+                int neighbour = ny * board.width + nx;
+                if (neighbour != index) {
+                    state.buffer[count++] = neighbour;
+                }
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,96 @@
+package minesweeper;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GameBenchmark
+ * Times whole games: the bot playing one on a fixed seed, and starting
+ * a no guess game from a board pool against planting it on the spot
+ *
+ * @author Charlie Gregg
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class GameBenchmark {
+    private final static Consumer<Sweeper> QUIET = board -> {}; // interupter that does nothing
+
+    /**
+     * A bot with a fresh board of its own, made again before every game
+     */
+    @State(Scope.Thread)
+    public static class Game {
+        @Param
+        Minesweeper.Difficulty difficulty; // the size and mine chance of the board, every difficulty unless given
+        MineBot bot; // the bot to play the game
+
+        @Setup(Level.Invocation)
+        public void deal() {
+            this.bot = new MineBot(new Sweeper(this.difficulty.mineChance, this.difficulty.width, this.difficulty.height, BoardBenchmark.SEED));
+        }
+    }
+    /**
+     * The size of a no guess board planted on the spot
+     */
+    @State(Scope.Thread)
+    public static class Spot {
+        @Param({"EXPERT", "INSANE"})
+        Minesweeper.Difficulty difficulty; // the size and mine chance of the board
+    }
+    /**
+     * A pool of no guess boards, waited on before every take so each take is a hit.
+     * The gc profiler counts every thread, so the boards the pool plants in the
+     * background show up in the take's allocation
+     */
+    @State(Scope.Thread)
+    public static class Pool {
+        @Param({"EXPERT", "INSANE"})
+        Minesweeper.Difficulty difficulty; // the size and mine chance of the boards
+        BoardPool pool; // the pool boards are taken from
+
+        @Setup(Level.Trial)
+        public void start() {
+            this.pool = new BoardPool(this.difficulty, Sweeper.Planting.NO_GUESS, 2);
+        }
+        @Setup(Level.Invocation)
+        public void await() {
+            while (this.pool.getReady() == 0) {
+                Thread.onSpinWait(); // let the pool refill
+            }
+        }
+        @TearDown(Level.Trial)
+        public void stop() {
+            System.out.println(this.pool.toJson());
+            this.pool.close();
+        }
+    }
+
+    @Benchmark
+    public boolean mineBot(Game state) {
+        return state.bot.run(QUIET);
+    }
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Sweeper boardPoolTake(Pool state) {
+        return state.pool.take();
+    }
+    @Benchmark
+    public Sweeper boardPoolSpot(Spot state) {
+        return BoardBenchmark.populated(state.difficulty.width, state.difficulty.height, state.difficulty.mineChance, Sweeper.Planting.NO_GUESS);
+    }
+}
@@ -0,0 +1,75 @@
+package minesweeper;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * MinefieldBenchmark
+ * Times intersecting two half overlapping fields and checking fields for overlap.
+ * The fields sit side by side on one board three fields wide, and the second holds
+ * no mines, so intersecting them splits out the mines of the first
+ *
+ * @author Charlie Gregg
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MinefieldBenchmark {
+    @Param({"2", "4", "16"})
+    int size; // the length of each side of the square fields
+
+    private Minefield aField; // a field half full of mines
+    private Minefield bField; // a field with no mines covering the right half of the first
+    private Minefield cField; // a field beside both, sharing no tiles
+
+    @Setup
+    public void build() {
+        int width = 3 * this.size; // the board all three fields are on
+        this.aField = MinefieldBenchmark.square(0, this.size, this.size * this.size / 2, width);
+        this.bField = MinefieldBenchmark.square(this.size / 2, this.size, 0, width);
+        this.cField = MinefieldBenchmark.square(2 * this.size, this.size, 1, width);
+    }
+    /**
+     * Build a square field of tiles
+     * @param left the x position of the left edge
+     * @param size the length of each side
+     * @param mines the number of mines in the field
+     * @param width the width of the board the field is on
+     * @return the field
+     */
+    private static Minefield square(int left, int size, int mines, int width) {
+        Set<MineTile> spaces = new HashSet<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = left; x < left + size; x++) {
+                spaces.add(new MineTile(x, y));
+            }
+        }
+        return new Minefield(spaces, mines, width);
+    }
+
+    @Benchmark
+    public ArrayList<Minefield> intersect() {
+        return Minefield.intersect(this.aField, this.bField);
+    }
+    @Benchmark
+    public void touches(Blackhole hole) {
+        hole.consume(this.aField.touches(this.bField));
+        hole.consume(this.aField.touches(this.cField));
+    }
+}
@@ -0,0 +1,82 @@
+package minesweeper;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SharedBoardBenchmark
+ * Times several threads opening random safe tiles on one shared board,
+ * checking afterwards that every opened tile was counted exactly once
+ *
+ * @author Charlie Gregg
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+@State(Scope.Benchmark)
+public class SharedBoardBenchmark {
+    private final static int SIZE = 1000; // the width and height of the board
+    private final static int OPENS = 20000; // tiles opened each invocation, split between the threads
+
+    @Param({"1", "2", "4", "8"})
+    int threads; // the threads opening tiles at once
+
+    private ForkJoinPool pool; // runs the threads
+    private Sweeper board; // the board being opened, planted again before every invocation
+
+    @Setup(Level.Trial)
+    public void start() {
+        this.pool = new ForkJoinPool(this.threads);
+    }
+    @Setup(Level.Invocation)
+    public void plant() {
+        this.board = Sweeper.shared(0.2, SIZE, SIZE, BoardBenchmark.SEED);
+        this.board.populate(new MineTile(SIZE / 2, SIZE / 2));
+    }
+    @TearDown(Level.Invocation)
+    public void check() {
+        int open = 0;
+        for (int index = 0; index < SIZE * SIZE; index++) {
+            open += this.board.isOpen(index) ? 1 : 0;
+        }
+        if (open != SIZE * SIZE - this.board.getRemainingSpaces()) {
+            throw new IllegalStateException(open + " tiles open but " + this.board.getRemainingSpaces() + " remaining");
+        }
+    }
+    @TearDown(Level.Trial)
+    public void stop() {
+        this.pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(OPENS)
+    public void open() {
+        Sweeper board = this.board;
+        this.pool.submit(() -> IntStream.range(0, this.threads).parallel().forEach(thread -> {
+            Random rand = new Random(BoardBenchmark.SEED + thread);
+            for (int i = 0; i < OPENS / this.threads; i++) {
+                int index = rand.nextInt(SIZE * SIZE);
+                if (!board.isMine(index)) {
+                    Minesweeper.open(board, board.getTile(index));
+                }
+            }
+        })).join();
+    }
+}
@@ -0,0 +1,196 @@
+package minesweeper;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import javax.management.JMException;
+
+/**
+ * BatchRunner
+ * Plays many seeded games with the bot without displaying them
+ *
+ * @author Charlie Gregg
+ */
+public class BatchRunner {
+    private final int width; // the width of each board
+    private final int height; // the height of each board
+    private final double mineChance; // the chance of a mine being on each tile
+    private BotListener listener; // told what every bot is doing, or null if nobody is listening
+    private Supplier<FrontierSolver> solvers; // makes each bot's solver, as a solver caches what it has counted
+
+    private final static Consumer<Sweeper> QUIET = board -> {}; // interupter that does nothing
+
+    public BatchRunner(int width, int height, double mineChance) {
+        this.width = width;
+        this.height = height;
+        this.mineChance = mineChance;
+        this.listener = null;
+        this.solvers = FrontierSolver::new;
+    }
+    public BatchRunner(Minesweeper.Difficulty difficulty) {
+        this(difficulty.width, difficulty.height, difficulty.mineChance);
+    }
+    /**
+     * Set the listener given to every bot, it is called from several threads at once
+     * @param listener the listener, or null to stop listening
+     */
+    public void setListener(BotListener listener) {
+        this.listener = listener;
+    }
+    /**
+     * Set how each bot's solver is made, to give it a different size and time budget
+     * @param solvers makes a new solver for every game
+     */
+    public void setSolvers(Supplier<FrontierSolver> solvers) {
+        this.solvers = solvers;
+    }
+    /**
+     * Play a game for every seed in a range, spread over several threads
+     * @param firstSeed the seed of the first game
+     * @param games the number of games to play
+     * @param threads the number of threads to play on
+     * @return the summary of all the games
+     */
+    public Summary run(long firstSeed, int games, int threads) {
+        boolean[] wins = new boolean[games]; // each slot is only written by the game that owns it
+        int[] moves = new int[games];
+        int[] guesses = new int[games];
+        long[] latencies = new long[games];
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            pool.submit(() -> IntStream.range(0, games).parallel().forEach(game -> {
+                long gameStart = System.nanoTime();
+                Sweeper board = new Sweeper(this.mineChance, this.width, this.height, firstSeed + game);
+                MineBot bot = new MineBot(board, this.solvers.get());
+                bot.setListener(this.listener);
+                wins[game] = bot.run(QUIET);
+                latencies[game] = System.nanoTime() - gameStart;
+                moves[game] = bot.getMoves();
+                guesses[game] = bot.getGuesses();
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch run was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A game failed during the batch run", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int won = 0;
+        long totalMoves = 0;
+        long totalGuesses = 0;
+        for (int game = 0; game < games; game++) {
+            won += wins[game] ? 1 : 0;
+            totalMoves += moves[game];
+            totalGuesses += guesses[game];
+        }
+        Arrays.sort(latencies);
+        return new Summary(
+            games, won, totalMoves, totalGuesses, elapsed,
+            percentile(latencies, 0.5), percentile(latencies, 0.9),
+            percentile(latencies, 0.99), games > 0 ? latencies[games - 1] : 0
+        );
+    }
+    /**
+     * Get a percentile of some sorted values
+     * @param sorted the values in ascending order
+     * @param fraction the percentile as a fraction (0-1)
+     * @return the value at that percentile
+     */
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1)];
+    }
+
+    /**
+     * Run a batch from the command line and print the summary as JSON
+     * Arguments: difficulty (1-5) or WIDTHxHEIGHT@CHANCE, first seed, games, threads, then any of
+     * "metrics" to also collect and print the bot metrics, visible through JMX while running, and
+     * "solver=CELLS,NODES,NANOS,SAMPLES" to set the largest group the solver counts exactly, the most
+     * search steps and nanoseconds (0 for no limit) spent on one group, and the layouts drawn for bigger groups
+     */
+    public static void main(String args[]) throws JMException {
+        if (args.length < 3) {
+            System.err.println("Usage: BatchRunner <difficulty|WIDTHxHEIGHT@CHANCE> <first seed> <games> [threads] [metrics] [solver=CELLS,NODES,NANOS,SAMPLES]");
+            System.exit(1);
+        }
+        BatchRunner runner; // the runner for the chosen board
+        if (args[0].matches("\\d+x\\d+@[0-9.]+")) {
+            String[] parts = args[0].split("[x@]");
+            runner = new BatchRunner(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Double.parseDouble(parts[2]));
+        } else {
+            runner = new BatchRunner(Minesweeper.getDifficulty(Integer.parseInt(args[0])));
+        }
+        long firstSeed = Long.parseLong(args[1]);
+        int games = Integer.parseInt(args[2]);
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        BotMetrics metrics = null; // the metrics of every bot, if asked for
+        for (int i = 4; i < args.length; i++) {
+            if (args[i].equals("metrics")) {
+                metrics = new BotMetrics();
+                metrics.register("BatchRunner");
+                runner.setListener(metrics);
+            } else if (args[i].matches("solver=\\d+,\\d+,\\d+,\\d+")) {
+                String[] budget = args[i].substring("solver=".length()).split(",");
+                int maxExactCells = Integer.parseInt(budget[0]);
+                long nodeBudget = Long.parseLong(budget[1]);
+                long timeBudget = Long.parseLong(budget[2]);
+                int samples = Integer.parseInt(budget[3]);
+                runner.setSolvers(() -> new FrontierSolver(maxExactCells, nodeBudget, timeBudget, samples));
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(1);
+            }
+        }
+        System.out.println(runner.run(firstSeed, games, threads).toJson());
+        if (metrics != null) {
+            System.out.println(metrics.toJson());
+        }
+    }
+}
+/**
+ * Summary
+ * The results of a batch of games
+ *
+ * @param games the number of games played
+ * @param wins the number of games won
+ * @param moves the total number of moves made
+ * @param guesses the total number of guesses made
+ * @param elapsedNanos the wall time taken for the whole batch
+ * @param p50Nanos the median time taken by a game
+ * @param p90Nanos the 90th percentile time taken by a game
+ * @param p99Nanos the 99th percentile time taken by a game
+ * @param maxNanos the longest time taken by a game
+ */
+record Summary(int games, int wins, long moves, long guesses, long elapsedNanos,
+               long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+    public double winRate() {
+        return this.games == 0 ? 0 : (double) this.wins / this.games;
+    }
+    public double guessesPerGame() {
+        return this.games == 0 ? 0 : (double) this.guesses / this.games;
+    }
+    public double movesPerSecond() {
+        return this.elapsedNanos == 0 ? 0 : this.moves * 1e9 / this.elapsedNanos;
+    }
+    public String toJson() {
+        return "{\"games\": " + this.games
+            + ", \"wins\": " + this.wins
+            + ", \"winRate\": " + this.winRate()
+            + ", \"guessesPerGame\": " + this.guessesPerGame()
+            + ", \"movesPerSecond\": " + this.movesPerSecond()
+            + ", \"elapsedNanos\": " + this.elapsedNanos
+            + ", \"latencyNanos\": {\"p50\": " + this.p50Nanos
+            + ", \"p90\": " + this.p90Nanos
+            + ", \"p99\": " + this.p99Nanos
+            + ", \"max\": " + this.maxNanos + "}}";
+    }
+}
@@ -0,0 +1,331 @@
+package minesweeper;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.LongStream;
+
+/**
+ * BoardAnalyzer
+ * Measures how hard a mine layout is: its 3BV (the fewest clicks that clear it),
+ * its openings, the numbered tiles away from every opening, and the frontier left
+ * by the first click. The empty tiles are labelled into openings with a union-find
+ * built in one scan over the flat grid, and one more scan counts the numbers
+ *
+ * @author Charlie Gregg
+ */
+public class BoardAnalyzer {
+    private final static int BATCH = 1 << 16; // seeds swept between each line written
+
+    private final int[] parent; // union-find parent of each empty tile, -1 for other tiles
+    private final int[] sizes; // tiles in the opening rooted at each index
+    private final int[] surrounding; // reusable buffer of neighbouring indices
+    private final BitSet opened; // tiles opened by the first click
+    private final BitSet frontier; // unopened tiles touching the first click's numbers
+
+    /**
+     * @param tiles the number of tiles on the boards to analyse
+     */
+    public BoardAnalyzer(int tiles) {
+        this.parent = new int[tiles];
+        this.sizes = new int[tiles];
+        this.surrounding = new int[Sweeper.MAX_SURROUNDING];
+        this.opened = new BitSet(tiles);
+        this.frontier = new BitSet(tiles);
+    }
+    /**
+     * Measure a board, placing its mines for the first click if they aren't already
+     * @param board the board, at most as many tiles as the analyzer was made for
+     * @param first the first tile clicked
+     * @return the measurements
+     */
+    public BoardMetrics analyze(Sweeper board, MineTile first) {
+        board.populate(first);
+        int width = board.width;
+        int tiles = board.width * board.height;
+        // label the empty tiles, joining each to the empty tiles already seen around it
+        for (int index = 0; index < tiles; index++) {
+            if (board.isMine(index) || board.getMineNeighbours(index) != 0) {
+                this.parent[index] = -1;
+                continue;
+            }
+            this.parent[index] = index;
+            int x = index % width;
+            if (x > 0) {
+                this.union(index, index - 1);
+            }
+            if (index >= width) {
+                this.union(index, index - width);
+                if (x > 0) {
+                    this.union(index, index - width - 1);
+                }
+                if (x < width - 1) {
+                    this.union(index, index - width + 1);
+                }
+            }
+        }
+        // count each opening's tiles, and the numbers which belong to no opening
+        Arrays.fill(this.sizes, 0, tiles, 0);
+        int openings = 0;
+        int isolated = 0;
+        for (int index = 0; index < tiles; index++) {
+            if (this.parent[index] >= 0) {
+                int root = this.find(index);
+                openings += root == index ? 1 : 0;
+                this.sizes[root]++;
+            } else if (!board.isMine(index)) {
+                int roots = this.touchingRoots(board, index);
+                for (int i = 0; i < roots; i++) {
+                    this.sizes[this.surrounding[i]]++;
+                }
+                isolated += roots == 0 ? 1 : 0;
+            }
+        }
+        int[] openingSizes = new int[openings];
+        int opening = 0;
+        for (int index = 0; index < tiles && opening < openings; index++) {
+            if (this.parent[index] == index) {
+                openingSizes[opening++] = this.sizes[index];
+            }
+        }
+        return new BoardMetrics(openings + isolated, openings, openingSizes, isolated, this.frontier(board, board.index(first)));
+    }
+    /**
+     * Write the distinct openings touching a numbered tile into the neighbour buffer
+     * @param board the board
+     * @param index the index of the numbered tile
+     * @return the number of openings written
+     */
+    private int touchingRoots(Sweeper board, int index) {
+        int count = board.getSurrounding(index, this.surrounding, false);
+        int roots = 0;
+        for (int i = 0; i < count; i++) {
+            int neighbour = this.surrounding[i];
+            if (this.parent[neighbour] < 0) {
+                continue;
+            }
+            int root = this.find(neighbour);
+            boolean seen = false;
+            for (int j = 0; j < roots && !seen; j++) {
+                seen = this.surrounding[j] == root;
+            }
+            if (!seen) {
+                this.surrounding[roots++] = root; // never overwrites a neighbour not yet read
+            }
+        }
+        return roots;
+    }
+    /**
+     * Count the unopened tiles touching the numbers the first click opens
+     * @param board the board
+     * @param first the index of the first tile clicked
+     * @return the size of the frontier
+     */
+    private int frontier(Sweeper board, int first) {
+        this.opened.clear();
+        this.frontier.clear();
+        int tiles = board.width * board.height;
+        if (board.isMine(first)) {
+            return 0;
+        }
+        if (this.parent[first] < 0) {
+            this.opened.set(first);
+        } else {
+            int root = this.find(first);
+            for (int index = 0; index < tiles; index++) {
+                if (this.parent[index] >= 0 ? this.find(index) == root : this.touches(board, index, root)) {
+                    this.opened.set(index);
+                }
+            }
+        }
+        for (int index = this.opened.nextSetBit(0); index >= 0; index = this.opened.nextSetBit(index + 1)) {
+            if (this.parent[index] >= 0) {
+                continue; // every tile around an empty tile is opened with it
+            }
+            int count = board.getSurrounding(index, this.surrounding, false);
+            for (int i = 0; i < count; i++) {
+                if (!this.opened.get(this.surrounding[i])) {
+                    this.frontier.set(this.surrounding[i]);
+                }
+            }
+        }
+        return this.frontier.cardinality();
+    }
+    /**
+     * Check if a numbered tile touches an opening
+     * @param board the board
+     * @param index the index of the tile
+     * @param root the root of the opening
+     * @return true if the tile is opened along with the opening
+     */
+    private boolean touches(Sweeper board, int index, int root) {
+        if (board.isMine(index)) {
+            return false;
+        }
+        int roots = this.touchingRoots(board, index);
+        for (int i = 0; i < roots; i++) {
+            if (this.surrounding[i] == root) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Find the root of an empty tile's opening, halving the path on the way
+     * @param index the index of the empty tile
+     * @return the index of the root
+     */
+    private int find(int index) {
+        while (this.parent[index] != index) {
+            this.parent[index] = this.parent[this.parent[index]];
+            index = this.parent[index];
+        }
+        return index;
+    }
+    /**
+     * Join an empty tile's opening with a neighbour's, if the neighbour is empty,
+     * keeping the lower index as the root
+     * @param index the index of the empty tile
+     * @param neighbour the index of the neighbour
+     */
+    private void union(int index, int neighbour) {
+        if (this.parent[neighbour] < 0) {
+            return;
+        }
+        int a = this.find(index);
+        int b = this.find(neighbour);
+        if (a < b) {
+            this.parent[b] = a;
+        } else if (b < a) {
+            this.parent[a] = b;
+        }
+    }
+
+    /**
+     * Measure the boards of a range of seeds in parallel, each planted around the middle
+     * tile, writing the distributions so far as a line of JSON after every batch of seeds.
+     * Boards are dropped as soon as they are measured, so memory doesn't grow with the seeds
+     * @param difficulty the size and mine chance of the boards
+     * @param firstSeed the seed of the first board
+     * @param seeds the number of boards to measure
+     * @param threads the number of threads to measure on
+     * @param out where to write the lines
+     */
+    public static void sweep(Minesweeper.Difficulty difficulty, long firstSeed, long seeds, int threads, Writer out) throws IOException {
+        int tiles = difficulty.width * difficulty.height;
+        MineTile first = new MineTile(difficulty.width / 2, difficulty.height / 2);
+        Distribution threeBV = new Distribution(tiles);
+        Distribution openings = new Distribution(tiles);
+        Distribution openingSizes = new Distribution(tiles);
+        Distribution isolated = new Distribution(tiles);
+        Distribution frontier = new Distribution(tiles);
+        ThreadLocal<BoardAnalyzer> analyzers = ThreadLocal.withInitial(() -> new BoardAnalyzer(tiles));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            for (long start = 0; start < seeds; start += BATCH) {
+                long end = Math.min(start + BATCH, seeds);
+                long from = start;
+                pool.submit(() -> LongStream.range(from, end).parallel().forEach(n -> {
+                    Sweeper board = new Sweeper(difficulty.mineChance, difficulty.width, difficulty.height, firstSeed + n);
+                    board.setPlanting(Sweeper.Planting.SHUFFLED_OPENING);
+                    BoardMetrics metrics = analyzers.get().analyze(board, first);
+                    threeBV.add(metrics.threeBV());
+                    openings.add(metrics.openings());
+                    for (int size : metrics.openingSizes()) {
+                        openingSizes.add(size);
+                    }
+                    isolated.add(metrics.isolated());
+                    frontier.add(metrics.frontier());
+                })).get();
+                out.write("{\"difficulty\": \"" + difficulty + "\", \"firstSeed\": " + firstSeed + ", \"seeds\": " + end
+                    + ", \"threeBV\": " + threeBV.toJson()
+                    + ", \"openings\": " + openings.toJson()
+                    + ", \"openingSizes\": " + openingSizes.toJson()
+                    + ", \"isolated\": " + isolated.toJson()
+                    + ", \"frontier\": " + frontier.toJson() + "}\n");
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A board failed during the sweep", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sweep a range of seeds from the command line
+     * Arguments: difficulty (1-5), first seed, number of seeds, output file, threads
+     */
+    public static void main(String args[]) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: BoardAnalyzer <difficulty> <first seed> <seeds> <output file> [threads]");
+            System.exit(1);
+        }
+        Minesweeper.Difficulty difficulty = Minesweeper.getDifficulty(Integer.parseInt(args[0]));
+        long firstSeed = Long.parseLong(args[1]);
+        long seeds = Long.parseLong(args[2]);
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        try (BufferedWriter out = Files.newBufferedWriter(Path.of(args[3]))) {
+            BoardAnalyzer.sweep(difficulty, firstSeed, seeds, threads, out);
+        }
+    }
+}
+/**
+ * Distribution
+ * Counts of every value from 0 to a limit, safe to add to from several threads
+ *
+ * @author Charlie Gregg
+ */
+class Distribution {
+    private final AtomicLongArray counts; // the number of times each value was added
+
+    Distribution(int limit) {
+        this.counts = new AtomicLongArray(limit + 1);
+    }
+    /**
+     * Count a value, clamping it into range
+     * @param value the value
+     */
+    void add(int value) {
+        this.counts.incrementAndGet(Math.min(Math.max(value, 0), this.counts.length() - 1));
+    }
+    /**
+     * Describe the distribution as JSON
+     * @return the count, mean, and the count of every value seen
+     */
+    String toJson() {
+        long total = 0;
+        long sum = 0;
+        StringBuilder values = new StringBuilder(); // the count of every value seen
+        for (int value = 0; value < this.counts.length(); value++) {
+            long count = this.counts.get(value);
+            if (count > 0) {
+                values.append(total > 0 ? ", " : "").append('"').append(value).append("\": ").append(count);
+                total += count;
+                sum += count * value;
+            }
+        }
+        return "{\"count\": " + total + ", \"mean\": " + (total > 0 ? (double) sum / total : 0) + ", \"counts\": {" + values + "}}";
+    }
+}
+/**
+ * BoardMetrics
+ * How hard a mine layout is
+ *
+ * @param threeBV the fewest clicks that clear the board, one per opening and one per number away from every opening
+ * @param openings the number of connected areas of empty tiles
+ * @param openingSizes the tiles each opening reveals, numbers around it included
+ * @param isolated the numbered tiles touching no opening
+ * @param frontier the unopened tiles touching the numbers revealed by the first click
+ */
+record BoardMetrics(int threeBV, int openings, int[] openingSizes, int isolated, int frontier) {}
@@ -0,0 +1,184 @@
+package minesweeper;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BoardPool
+ * Keeps a few boards of one size with their mines already placed, so a game can
+ * start without waiting for its mines to be planted. Every board is planted for the
+ * same first tile, which the game should open as its first move. Taken boards are
+ * replaced in the background, and a board is planted on the spot if none are ready
+ *
+ * @author Charlie Gregg
+ */
+public class BoardPool implements AutoCloseable {
+    private final int width; // the width of each board
+    private final int height; // the height of each board
+    private final double mineChance; // the chance of a mine being on each tile
+    private final Sweeper.Planting planting; // how the mines of each board are placed
+    private final MineTile first; // the tile every board is planted for
+    private final int capacity; // the most boards to keep ready
+    private final ArrayBlockingQueue<Sweeper> ready; // planted boards waiting to be taken
+    private final ExecutorService executor; // plants replacement boards
+    private final boolean ownsExecutor; // true if closing the pool should shut the executor down
+    private final AtomicInteger pending; // boards being planted in the background
+    private final LongAdder hits; // boards taken ready planted
+    private final LongAdder misses; // boards planted on the spot because none were ready
+    private final Histogram refills; // nanoseconds taken to plant each background board
+    private volatile boolean closed; // true once no more boards will be planted
+
+    /**
+     * @param width the width of each board
+     * @param height the height of each board
+     * @param mineChance the chance of a mine being on each tile
+     * @param planting how the mines of each board are placed
+     * @param first the tile every board is planted for
+     * @param capacity the most boards to keep ready
+     * @param executor plants boards in the background, or null for a thread of the pool's own
+     */
+    public BoardPool(int width, int height, double mineChance, Sweeper.Planting planting, MineTile first,
+                     int capacity, ExecutorService executor) {
+        this.width = width;
+        this.height = height;
+        this.mineChance = mineChance;
+        this.planting = planting;
+        this.first = first;
+        this.capacity = Math.max(capacity, 1);
+        this.ready = new ArrayBlockingQueue<>(this.capacity);
+        this.ownsExecutor = executor == null;
+        this.executor = executor != null ? executor : Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "minesweeper-board-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.pending = new AtomicInteger();
+        this.hits = new LongAdder();
+        this.misses = new LongAdder();
+        this.refills = new Histogram();
+        this.closed = false;
+        this.refill();
+    }
+    /**
+     * Make a pool for a difficulty, planted for the middle tile
+     * @param difficulty the difficulty of the boards
+     * @param planting how the mines of each board are placed
+     * @param capacity the most boards to keep ready
+     */
+    public BoardPool(Minesweeper.Difficulty difficulty, Sweeper.Planting planting, int capacity) {
+        this(difficulty.width, difficulty.height, difficulty.mineChance, planting,
+             new MineTile(difficulty.width / 2, difficulty.height / 2), capacity, null);
+    }
+    /**
+     * Take a planted board, planting one now if none are ready, and start planting its replacement
+     * @return a board with its mines placed and nothing opened
+     */
+    public Sweeper take() {
+        Sweeper board = this.ready.poll();
+        if (board != null) {
+            this.hits.increment();
+        } else {
+            this.misses.increment();
+            board = this.plant();
+        }
+        this.refill();
+        return board;
+    }
+    /**
+     * Get the tile every board is planted for, which should be opened first
+     * @return the first tile
+     */
+    public MineTile getFirst() {
+        return this.first;
+    }
+    /**
+     * Make a new board and place its mines for the first tile
+     * @return the planted board
+     */
+    private Sweeper plant() {
+        Sweeper board = new Sweeper(this.mineChance, this.width, this.height);
+        board.setPlanting(this.planting);
+        board.populate(this.first);
+        return board;
+    }
+    /**
+     * Start planting boards in the background until the ready and pending boards fill the pool
+     */
+    private void refill() {
+        while (!this.closed) {
+            int pending = this.pending.get();
+            if (this.ready.size() + pending >= this.capacity) {
+                return;
+            }
+            if (!this.pending.compareAndSet(pending, pending + 1)) {
+                continue; // another thread started a board, check again
+            }
+            try {
+                this.executor.execute(() -> {
+                    try {
+                        long start = System.nanoTime();
+                        Sweeper board = this.plant();
+                        this.refills.record(System.nanoTime() - start);
+                        this.ready.offer(board);
+                    } finally {
+                        this.pending.decrementAndGet();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                this.pending.decrementAndGet();
+                return; // the executor has been shut down, so take plants on the spot from now on
+            }
+        }
+    }
+    /**
+     * Get the number of boards taken ready planted
+     * @return the number of hits
+     */
+    public long getHits() {
+        return this.hits.sum();
+    }
+    /**
+     * Get the number of boards planted on the spot because none were ready
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+    /**
+     * Get the number of boards ready to be taken
+     * @return the ready boards
+     */
+    public int getReady() {
+        return this.ready.size();
+    }
+    /**
+     * Get the times taken to plant boards in the background
+     * @return the refill times in nanoseconds
+     */
+    public Histogram getRefills() {
+        return this.refills;
+    }
+    /**
+     * Describe the pool's counts as JSON
+     * @return the hits, misses, ready boards and refill times
+     */
+    public String toJson() {
+        return "{\"hits\": " + this.getHits()
+            + ", \"misses\": " + this.getMisses()
+            + ", \"ready\": " + this.getReady()
+            + ", \"refillNanos\": " + this.refills.toJson() + "}";
+    }
+    /**
+     * Stop planting boards, shutting down the executor if the pool made it
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        if (this.ownsExecutor) {
+            this.executor.shutdownNow();
+        }
+    }
+}
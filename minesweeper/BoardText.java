@@ -0,0 +1,181 @@
+package minesweeper;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * BoardText
+ * Reads and writes boards as text, one line per row with '*' for a mine
+ * and any other character, usually '.', for an empty tile.
+ * Input is read in one pass without holding the text, so boards can be
+ * larger than the biggest string
+ *
+ * @author Charlie Gregg
+ */
+public class BoardText {
+    private final static int CHUNK = 1 << 16; // characters read or written at a time
+    private final static char MINE = '*'; // a tile with a mine
+    private final static char EMPTY = '.'; // a tile without a mine
+
+    private byte[] cells; // the mine bit of each tile read so far
+    private int count; // the number of tiles read so far
+    private int width; // the length of the first row, or -1 until it ends
+    private int column; // the number of tiles read in the current row
+    private int mines; // the number of mines read so far
+    private boolean blank; // true if an empty row has ended since the last tile, which only the end of the text may follow
+
+    private BoardText() {
+        this.cells = new byte[CHUNK];
+        this.count = 0;
+        this.width = -1;
+        this.column = 0;
+        this.mines = 0;
+        this.blank = false;
+    }
+    /**
+     * Read a board from text
+     * @param in the text to read, closed by the caller
+     * @return the board, with its mines placed and counted
+     */
+    public static Sweeper read(Reader in) throws IOException {
+        BoardText parser = new BoardText();
+        char[] chunk = new char[CHUNK];
+        for (int read = in.read(chunk); read != -1; read = in.read(chunk)) {
+            for (int i = 0; i < read; i++) {
+                parser.accept(chunk[i]);
+            }
+        }
+        return new Sweeper(parser.finish());
+    }
+    /**
+     * Read a board from text encoded one byte per character, such as a mapped file
+     * @param in the text to read, from its position to its limit
+     * @return the board, with its mines placed and counted
+     */
+    public static Sweeper read(ByteBuffer in) {
+        BoardText parser = new BoardText();
+        while (in.hasRemaining()) {
+            parser.accept((char) in.get());
+        }
+        return new Sweeper(parser.finish());
+    }
+    /**
+     * Read the layout of a board from a string
+     * @param board the text to read
+     * @return the layout of the board
+     */
+    static Layout parse(String board) {
+        try {
+            BoardText parser = new BoardText();
+            StringReader in = new StringReader(board);
+            for (int c = in.read(); c != -1; c = in.read()) {
+                parser.accept((char) c);
+            }
+            return parser.finish();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringReader can't fail
+        }
+    }
+    /**
+     * Take one character of the text
+     * @param c the character
+     */
+    private void accept(char c) {
+        if (c == '\n') {
+            this.endRow();
+        } else if (c != '\r') {
+            if (this.blank) {
+                throw new IllegalArgumentException("Row " + this.count / this.width + " has 0 tiles, expected " + this.width);
+            }
+            if (this.count == this.cells.length) {
+                this.cells = Arrays.copyOf(this.cells, this.cells.length * 2);
+            }
+            if (c == MINE) {
+                this.cells[this.count] = Sweeper.MINE;
+                this.mines++;
+            }
+            this.count++;
+            this.column++;
+        }
+    }
+    /**
+     * End the current row, checking it is as long as the first. Empty rows after
+     * the first are only allowed at the end of the text, where they are ignored
+     */
+    private void endRow() {
+        if (this.width == -1) {
+            this.width = this.column;
+        } else if (this.column == 0) {
+            this.blank = true;
+        } else if (this.column != this.width) {
+            throw new IllegalArgumentException("Row " + (this.count - this.column) / Math.max(this.width, 1)
+                + " has " + this.column + " tiles, expected " + this.width);
+        }
+        this.column = 0;
+    }
+    /**
+     * End the text, which may or may not end with a new line
+     * @return the layout of the board read
+     */
+    private Layout finish() {
+        if (this.column > 0 || this.width == -1) {
+            this.endRow();
+        }
+        if (this.width == 0) {
+            throw new IllegalArgumentException("Board has no tiles");
+        }
+        ByteBuffer tiles = ByteBuffer.wrap(this.cells, 0, this.count).slice();
+        return new Layout(this.width, this.count / this.width, tiles, this.mines);
+    }
+    /**
+     * Write a board as text, ending every row with a new line
+     * @param board the board to write
+     * @param out where to write it, flushed but not closed
+     */
+    public static void write(Sweeper board, Writer out) throws IOException {
+        char[] chunk = new char[Math.max(CHUNK, board.width + 1)];
+        int length = 0;
+        for (int y = 0; y < board.height; y++) {
+            if (length + board.width + 1 > chunk.length) {
+                out.write(chunk, 0, length);
+                length = 0;
+            }
+            for (int index = y * board.width; index < (y + 1) * board.width; index++) {
+                chunk[length++] = board.isMine(index) ? MINE : EMPTY;
+            }
+            chunk[length++] = '\n';
+        }
+        out.write(chunk, 0, length);
+        out.flush();
+    }
+    /**
+     * Write a board as a string, which Sweeper(String) reads back
+     * @param board the board to write
+     * @return the board as text
+     */
+    public static String format(Sweeper board) {
+        StringWriter out = new StringWriter(board.height * (board.width + 1));
+        try {
+            BoardText.write(board, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringWriter can't fail
+        }
+        return out.toString();
+    }
+}
+
+/**
+ * Layout
+ * The mines of a board read from text
+ * @param width the width of the board
+ * @param height the height of the board
+ * @param cells the tiles of the board, with only the mine bits set
+ * @param mines the number of mines
+ */
+record Layout(int width, int height, ByteBuffer cells, int mines) {
+}
@@ -0,0 +1,54 @@
+package minesweeper;
+
+/**
+ * BotListener
+ * Told what the bot is doing as it plays, every method does nothing unless overridden.
+ * Calls come from the thread playing the game, so a listener shared between
+ * games on several threads must be thread safe
+ *
+ * @author Charlie Gregg
+ */
+public interface BotListener {
+    /**
+     * Phase
+     * The parts of a bot iteration that are timed
+     */
+    enum Phase {
+        FILTER, // removing opened tiles from fields and adding the new numbers
+        PAIRS, // splitting the changed fields into groups to reduce
+        REDUCE, // intersecting touching fields until nothing changes
+        OPEN, // opening tiles on the board
+        SOLVE // working out the chances for a guess
+    }
+
+    /**
+     * Called once an iteration has reduced its fields
+     * @param fields the number of fields alive
+     * @param changed the number of fields waiting to be reduced before reducing
+     * @param settled the number of fields found to be all mines or all safe
+     */
+    default void iteration(int fields, int changed, int settled) {}
+    /**
+     * Called after each timed phase
+     * @param phase the phase
+     * @param nanos the time it took
+     */
+    default void phase(Phase phase, long nanos) {}
+    /**
+     * Called once an iteration has reduced its fields
+     * @param intersections the number of pairs of fields intersected
+     * @param reductions the number of those which split the fields
+     */
+    default void intersected(long intersections, long reductions) {}
+    /**
+     * Called after the bot opens a tile it chose
+     * @param guess true if the bot wasn't certain the tile was safe
+     * @param survived true if the tile wasn't a mine
+     */
+    default void opened(boolean guess, boolean survived) {}
+    /**
+     * Called when a game ends
+     * @param won true if the bot won
+     */
+    default void finished(boolean won) {}
+}
@@ -0,0 +1,199 @@
+package minesweeper;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * BotMetrics
+ * A listener collecting counters and histograms of what bots are doing,
+ * safe to share between bots playing on several threads
+ *
+ * @author Charlie Gregg
+ */
+public class BotMetrics implements BotListener, BotMetricsMBean {
+    private final LongAdder games; // games finished
+    private final LongAdder wins; // games won
+    private final LongAdder certainOpens; // tiles opened knowing they were safe
+    private final LongAdder guesses; // tiles opened as guesses
+    private final LongAdder survivedGuesses; // guesses that weren't mines
+    private final LongAdder intersections; // pairs of fields intersected
+    private final LongAdder reductions; // intersections which split the fields
+    private final Histogram fields; // fields alive each iteration
+    private final Histogram queue; // fields waiting to be reduced each iteration
+    private final Map<Phase, Histogram> phases; // time taken by each phase
+
+    public BotMetrics() {
+        this.games = new LongAdder();
+        this.wins = new LongAdder();
+        this.certainOpens = new LongAdder();
+        this.guesses = new LongAdder();
+        this.survivedGuesses = new LongAdder();
+        this.intersections = new LongAdder();
+        this.reductions = new LongAdder();
+        this.fields = new Histogram();
+        this.queue = new Histogram();
+        this.phases = new EnumMap<>(Phase.class);
+        for (Phase phase : Phase.values()) {
+            this.phases.put(phase, new Histogram());
+        }
+    }
+    /**
+     * Make the metrics visible through the platform MBean server
+     * @param name the name to register under
+     * @return the name the metrics were registered as
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("minesweeper:type=BotMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public void iteration(int fields, int changed, int settled) {
+        this.fields.record(fields);
+        this.queue.record(changed);
+    }
+    @Override
+    public void phase(Phase phase, long nanos) {
+        this.phases.get(phase).record(nanos);
+    }
+    @Override
+    public void intersected(long intersections, long reductions) {
+        this.intersections.add(intersections);
+        this.reductions.add(reductions);
+    }
+    @Override
+    public void opened(boolean guess, boolean survived) {
+        if (!guess) {
+            this.certainOpens.increment();
+            return;
+        }
+        this.guesses.increment();
+        if (survived) {
+            this.survivedGuesses.increment();
+        }
+    }
+    @Override
+    public void finished(boolean won) {
+        this.games.increment();
+        if (won) {
+            this.wins.increment();
+        }
+    }
+
+    @Override
+    public long getGames() {
+        return this.games.sum();
+    }
+    @Override
+    public long getWins() {
+        return this.wins.sum();
+    }
+    @Override
+    public long getIterations() {
+        return this.fields.getCount();
+    }
+    @Override
+    public long getCertainOpens() {
+        return this.certainOpens.sum();
+    }
+    @Override
+    public long getGuesses() {
+        return this.guesses.sum();
+    }
+    @Override
+    public double getGuessSuccessRate() {
+        long guesses = this.guesses.sum();
+        return guesses == 0 ? 0 : (double) this.survivedGuesses.sum() / guesses;
+    }
+    @Override
+    public long getIntersections() {
+        return this.intersections.sum();
+    }
+    @Override
+    public long getReductions() {
+        return this.reductions.sum();
+    }
+    @Override
+    public double getMeanFields() {
+        return this.fields.getMean();
+    }
+    @Override
+    public long getMaxFields() {
+        return this.fields.getMax();
+    }
+    @Override
+    public double getMeanQueue() {
+        return this.queue.getMean();
+    }
+    @Override
+    public long getMaxQueue() {
+        return this.queue.getMax();
+    }
+    @Override
+    public long getFilterNanos() {
+        return this.phases.get(Phase.FILTER).getSum();
+    }
+    @Override
+    public long getPairsNanos() {
+        return this.phases.get(Phase.PAIRS).getSum();
+    }
+    @Override
+    public long getReduceNanos() {
+        return this.phases.get(Phase.REDUCE).getSum();
+    }
+    @Override
+    public long getOpenNanos() {
+        return this.phases.get(Phase.OPEN).getSum();
+    }
+    @Override
+    public long getSolveNanos() {
+        return this.phases.get(Phase.SOLVE).getSum();
+    }
+    /**
+     * Get the histogram of times taken by a phase
+     * @param phase the phase
+     * @return the times in nanoseconds
+     */
+    public Histogram getPhase(Phase phase) {
+        return this.phases.get(phase);
+    }
+    @Override
+    public void reset() {
+        this.games.reset();
+        this.wins.reset();
+        this.certainOpens.reset();
+        this.guesses.reset();
+        this.survivedGuesses.reset();
+        this.intersections.reset();
+        this.reductions.reset();
+        this.fields.reset();
+        this.queue.reset();
+        for (Histogram phase : this.phases.values()) {
+            phase.reset();
+        }
+    }
+    /**
+     * Describe the metrics as JSON
+     * @return the counters and histograms
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"games\": " + this.getGames()
+            + ", \"wins\": " + this.getWins()
+            + ", \"certainOpens\": " + this.getCertainOpens()
+            + ", \"guesses\": " + this.getGuesses()
+            + ", \"guessSuccessRate\": " + this.getGuessSuccessRate()
+            + ", \"intersections\": " + this.getIntersections()
+            + ", \"reductions\": " + this.getReductions()
+            + ", \"fields\": " + this.fields.toJson()
+            + ", \"queue\": " + this.queue.toJson()
+            + ", \"phaseNanos\": {");
+        for (Phase phase : Phase.values()) {
+            json.append(phase.ordinal() > 0 ? ", " : "").append('"').append(phase.name().toLowerCase()).append("\": ").append(this.phases.get(phase).toJson());
+        }
+        return json.append("}}").toString();
+    }
+}
@@ -0,0 +1,28 @@
+package minesweeper;
+
+/**
+ * BotMetricsMBean
+ * The metrics of BotMetrics visible through JMX
+ *
+ * @author Charlie Gregg
+ */
+public interface BotMetricsMBean {
+    long getGames();
+    long getWins();
+    long getIterations();
+    long getCertainOpens();
+    long getGuesses();
+    double getGuessSuccessRate();
+    long getIntersections();
+    long getReductions();
+    double getMeanFields();
+    long getMaxFields();
+    double getMeanQueue();
+    long getMaxQueue();
+    long getFilterNanos();
+    long getPairsNanos();
+    long getReduceNanos();
+    long getOpenNanos();
+    long getSolveNanos();
+    void reset();
+}
@@ -0,0 +1,421 @@
+package minesweeper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntConsumer;
+
+/**
+ * Chunks
+ * The tiles of a board split into square chunks which are only built when
+ * first used. A chunk's mines come from the board's seed and the chunk's position,
+ * so a chunk that has not been played on can be thrown away and built again.
+ * Chunks that have been played on are kept in memory until too many are in use,
+ * then packed down to their open and flag bits and kept aside or written to disk
+ *
+ * @author Charlie Gregg
+ */
+public class Chunks {
+    final static int SIZE_BITS = 6; // log2 of the width of a chunk
+    final static int SIZE = 1 << SIZE_BITS; // the width and height of a chunk
+    final static int AREA = SIZE * SIZE; // the tiles in a chunk
+    private final static int MASK = SIZE - 1; // the position of a tile within its chunk
+    private final static int MINE_CACHE = 64; // chunk mine layouts kept for counting neighbours
+    private final static int PEEK_CACHE = 64; // spilled chunks' open and flag bits kept for peeking
+
+    private final int width; // the width of the board
+    private final int height; // the height of the board
+    private final int across; // the number of chunks across the board
+    private final double mineChance; // the chance of a mine being on each tile
+    private final long seed; // the seed of the board
+    private final int limit; // the most chunks kept built at once
+    private final Path spill; // the directory evicted chunks are written to, or null to keep them in memory
+    private final LinkedHashMap<Integer, byte[]> hot; // built chunks, least recently used first
+    private final Map<Integer, byte[]> cold; // open and flag bits of evicted chunks kept in memory
+    private final Map<Integer, Path> spilled; // evicted chunks written to disk, and the file each was written to
+    private final LinkedHashMap<Integer, byte[]> mines; // recent mine layouts, least recently used first
+    private final LinkedHashMap<Integer, byte[]> peeked; // open and flag bits read back from spilled chunks, least recently used first
+    private int[] opening; // sorted indices of tiles kept free of mines, null until the first opening
+    private int first; // the index of the first tile opened
+    private int lastKey; // the chunk used last, or -1
+    private byte[] last; // the tiles of the chunk used last
+
+    public Chunks(int width, int height, double mineChance, long seed, int limit, Path spill) {
+        this.width = width;
+        this.height = height;
+        this.across = (width + MASK) >> SIZE_BITS;
+        this.mineChance = mineChance;
+        this.seed = seed;
+        this.limit = Math.max(limit, 1);
+        this.spill = spill;
+        this.hot = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                if (this.size() <= Chunks.this.limit) {
+                    return false;
+                }
+                Chunks.this.evict(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+        this.cold = new HashMap<>();
+        this.spilled = new HashMap<>();
+        this.mines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return this.size() > MINE_CACHE;
+            }
+        };
+        this.peeked = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, byte[]> eldest) {
+                return this.size() > PEEK_CACHE;
+            }
+        };
+        this.opening = null;
+        this.first = -1;
+        this.lastKey = -1;
+        this.last = null;
+    }
+    /**
+     * Get the number of mines on the whole board, without building any chunks
+     * @return the number of mines
+     */
+    public int getMineCount() {
+        int count = 0;
+        for (int cy = 0; cy < this.height; cy += SIZE) {
+            for (int cx = 0; cx < this.width; cx += SIZE) {
+                count += this.minesIn(Math.min(SIZE, this.width - cx) * Math.min(SIZE, this.height - cy));
+            }
+        }
+        return count;
+    }
+    /**
+     * Get the number of mines in a chunk
+     * @param tiles the tiles of the chunk inside the board
+     * @return the number of mines
+     */
+    private int minesIn(int tiles) {
+        return (int) Math.floor(tiles * this.mineChance);
+    }
+    /**
+     * Place mines in every chunk from now on, and in the chunks already built.
+     * Chunks evicted before now get their mines when they are built again
+     * @param opening the sorted indices of tiles to keep free
+     * @param first the index of the first tile opened, kept free even when the opening doesn't fit
+     */
+    public void plant(int[] opening, int first) {
+        this.opening = opening;
+        this.first = first;
+        for (Map.Entry<Integer, byte[]> entry : this.hot.entrySet()) {
+            this.fill(entry.getKey(), entry.getValue());
+        }
+    }
+    /**
+     * Get the state of a tile, building its chunk if needed
+     * @param index the index of the tile
+     * @return the packed state of the tile
+     */
+    public byte get(int index) {
+        return this.chunk(index)[this.local(index)];
+    }
+    /**
+     * Set the state of a tile, building its chunk if needed
+     * @param index the index of the tile
+     * @param value the packed state of the tile
+     */
+    public void put(int index, byte value) {
+        this.chunk(index)[this.local(index)] = value;
+    }
+    /**
+     * Get the open and flag bits of a tile without building its chunk. An evicted
+     * chunk's bits are read from where it was set aside, leaving the built chunks alone
+     * @param index the index of the tile
+     * @return the packed state of the tile, only the open and flag bits if its chunk isn't built,
+     * or 0 if its chunk has never been used
+     */
+    public byte peek(int index) {
+        int key = this.key(index);
+        if (key == this.lastKey) {
+            return this.last[this.local(index)];
+        }
+        byte[] chunk = this.hot.get(key);
+        if (chunk != null) {
+            return chunk[this.local(index)];
+        }
+        byte[] packed = this.cold.get(key);
+        if (packed == null && this.spilled.containsKey(key)) {
+            packed = this.peeked.get(key);
+            if (packed == null) {
+                packed = this.readSpill(key);
+                this.peeked.put(key, packed);
+            }
+        }
+        return packed != null ? Chunks.unpack(packed, this.local(index)) : 0;
+    }
+    /**
+     * Run an action on every open tile, chunk by chunk
+     * @param action the action to run with the index of each open tile
+     */
+    public void forEachOpen(IntConsumer action) {
+        Set<Integer> used = new HashSet<>(this.hot.keySet());
+        used.addAll(this.cold.keySet());
+        used.addAll(this.spilled.keySet());
+        int[] keys = used.stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int key : keys) {
+            int left = (key % this.across) << SIZE_BITS;
+            int top = (key / this.across) << SIZE_BITS;
+            for (int y = top; y < Math.min(top + SIZE, this.height); y++) {
+                for (int x = left; x < Math.min(left + SIZE, this.width); x++) {
+                    int index = y * this.width + x;
+                    if ((this.peek(index) & Sweeper.OPEN) != 0) {
+                        action.accept(index);
+                    }
+                }
+            }
+        }
+    }
+    /**
+     * Get the bytes of memory used by chunks
+     * @return the bytes used
+     */
+    public long getFootprint() {
+        return (long) this.hot.size() * AREA + (long) this.cold.size() * AREA / 4;
+    }
+    /**
+     * Get the number of chunks built or set aside
+     * @return the number of chunks used so far
+     */
+    public int getUsed() {
+        return this.hot.size() + this.cold.size() + this.spilled.size();
+    }
+    /**
+     * Get the chunk holding a tile, building it if needed
+     * @param index the index of the tile
+     * @return the tiles of the chunk
+     */
+    private byte[] chunk(int index) {
+        int key = this.key(index);
+        if (key != this.lastKey) {
+            byte[] chunk = this.hot.get(key);
+            this.last = chunk != null ? chunk : this.load(key);
+            this.lastKey = key;
+        }
+        return this.last;
+    }
+    /**
+     * Get the key of the chunk holding a tile
+     * @param index the index of the tile
+     * @return the chunk key, counting across then down
+     */
+    private int key(int index) {
+        return ((index / this.width) >> SIZE_BITS) * this.across + ((index % this.width) >> SIZE_BITS);
+    }
+    /**
+     * Get the position of a tile within its chunk
+     * @param index the index of the tile
+     * @return the position, counting across then down
+     */
+    private int local(int index) {
+        return (((index / this.width) & MASK) << SIZE_BITS) | ((index % this.width) & MASK);
+    }
+    /**
+     * Build a chunk, bringing back its open and flag bits if it was evicted
+     * @param key the chunk key
+     * @return the tiles of the chunk, now in use
+     */
+    private byte[] load(int key) {
+        byte[] chunk = new byte[AREA];
+        if (this.opening != null) {
+            this.fill(key, chunk);
+        }
+        byte[] packed = this.cold.remove(key);
+        if (packed == null && this.spilled.containsKey(key)) {
+            packed = this.peeked.remove(key);
+            if (packed == null) {
+                packed = this.readSpill(key);
+            }
+            try {
+                Files.delete(this.spilled.remove(key));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (packed != null) {
+            for (int i = 0; i < AREA; i++) {
+                chunk[i] |= Chunks.unpack(packed, i);
+            }
+        }
+        this.hot.put(key, chunk);
+        return chunk;
+    }
+    /**
+     * Take a chunk out of use, keeping only its open and flag bits, if it has any
+     * @param key the chunk key
+     * @param chunk the tiles of the chunk
+     */
+    private void evict(int key, byte[] chunk) {
+        if (key == this.lastKey) {
+            this.lastKey = -1;
+            this.last = null;
+        }
+        byte[] packed = new byte[AREA / 4];
+        boolean played = false; // true if any tile is open or flagged
+        for (int i = 0; i < AREA; i++) {
+            int bits = ((chunk[i] & Sweeper.OPEN) != 0 ? 1 : 0) | ((chunk[i] & Sweeper.FLAG) != 0 ? 2 : 0);
+            packed[i >> 2] |= (byte) (bits << ((i & 3) << 1));
+            played |= bits != 0;
+        }
+        if (!played) {
+            return; // can be built again from the seed
+        }
+        if (this.spill == null) {
+            this.cold.put(key, packed);
+            return;
+        }
+        try {
+            // a new file for every chunk written, so boards sharing a directory and seed can't meet
+            Path file = Files.createTempFile(this.spill, "chunk-" + this.seed + "-" + key + "-", null);
+            Files.write(file, packed);
+            this.spilled.put(key, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+     * Read the open and flag bits of a chunk written to disk
+     * @param key the chunk key
+     * @return the packed bits, two per tile
+     */
+    private byte[] readSpill(int key) {
+        try {
+            return Files.readAllBytes(this.spilled.get(key));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+     * Get the open and flag bits of one tile from a chunk packed down to two bits per tile
+     * @param packed the packed bits
+     * @param i the position of the tile within its chunk
+     * @return the tile's state with only the open and flag bits
+     */
+    private static byte unpack(byte[] packed, int i) {
+        int bits = (packed[i >> 2] >> ((i & 3) << 1)) & 3;
+        return (byte) (((bits & 1) != 0 ? Sweeper.OPEN : 0) | ((bits & 2) != 0 ? Sweeper.FLAG : 0));
+    }
+    /**
+     * Add the mines of a chunk and the number of mines around each tile,
+     * looking at the mines of the chunks around it
+     * @param key the chunk key
+     * @param chunk the tiles of the chunk
+     */
+    private void fill(int key, byte[] chunk) {
+        int cx = key % this.across;
+        int cy = key / this.across;
+        byte[][] around = new byte[9][]; // mine layouts of the 3x3 chunks centred on this one
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                around[(dy + 1) * 3 + dx + 1] = this.mineLayout(cx + dx, cy + dy);
+            }
+        }
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int count = 0;
+                for (int ny = y - 1; ny <= y + 1; ny++) {
+                    for (int nx = x - 1; nx <= x + 1; nx++) {
+                        byte[] layout = around[((ny >> SIZE_BITS) + 1) * 3 + (nx >> SIZE_BITS) + 1];
+                        if ((nx != x || ny != y) && layout != null) {
+                            count += layout[((ny & MASK) << SIZE_BITS) | (nx & MASK)];
+                        }
+                    }
+                }
+                int i = (y << SIZE_BITS) | x;
+                chunk[i] = (byte) ((chunk[i] & ~(Sweeper.MINE | Sweeper.NEIGHBOURS))
+                    | (around[4][i] != 0 ? Sweeper.MINE : 0) | count);
+            }
+        }
+    }
+    /**
+     * Get where the mines of a chunk are, placing them with the same
+     * partial shuffle as a whole board, seeded from the chunk's position
+     * @param cx the chunk's x position
+     * @param cy the chunk's y position
+     * @return 1 for each tile with a mine, or null if the chunk is off the board
+     */
+    private byte[] mineLayout(int cx, int cy) {
+        if (cx < 0 || cy < 0 || cx >= this.across || (cy << SIZE_BITS) >= this.height) {
+            return null;
+        }
+        int key = cy * this.across + cx;
+        byte[] layout = this.mines.get(key);
+        if (layout != null) {
+            return layout;
+        }
+        layout = new byte[AREA];
+        int chunkWidth = Math.min(SIZE, this.width - (cx << SIZE_BITS));
+        int chunkHeight = Math.min(SIZE, this.height - (cy << SIZE_BITS));
+        int count = this.minesIn(chunkWidth * chunkHeight);
+        int[] safe = this.safeIn(this.opening, cx, cy, chunkWidth, chunkHeight); // positions in this chunk to keep free
+        if (chunkWidth * chunkHeight - safe.length < count) {
+            safe = this.safeIn(new int[] {this.first}, cx, cy, chunkWidth, chunkHeight); // too small to fit the opening
+        }
+        int spaces = chunkWidth * chunkHeight - safe.length;
+        Random rand = new Random(this.seed ^ (key * 0x9E3779B97F4A7C15L));
+        boolean[] placed = new boolean[chunkWidth * chunkHeight];
+        for (int j = spaces - count; j < spaces; j++) {
+            int position = Chunks.skipSafe(rand.nextInt(j + 1), safe);
+            if (placed[position]) {
+                position = Chunks.skipSafe(j, safe); // j has never been drawn before
+            }
+            placed[position] = true;
+            layout[((position / chunkWidth) << SIZE_BITS) | (position % chunkWidth)] = 1;
+        }
+        this.mines.put(key, layout);
+        return layout;
+    }
+    /**
+     * Get the tiles of a chunk to keep free
+     * @param tiles the indices of tiles to keep free anywhere on the board
+     * @param cx the chunk's x position
+     * @param cy the chunk's y position
+     * @param chunkWidth the width of the chunk inside the board
+     * @param chunkHeight the height of the chunk inside the board
+     * @return the sorted positions within the chunk to keep free, counting across its width
+     */
+    private int[] safeIn(int[] tiles, int cx, int cy, int chunkWidth, int chunkHeight) {
+        int[] safe = new int[tiles.length];
+        int count = 0;
+        for (int index : tiles) {
+            int x = index % this.width - (cx << SIZE_BITS);
+            int y = index / this.width - (cy << SIZE_BITS);
+            if (x >= 0 && x < chunkWidth && y >= 0 && y < chunkHeight) {
+                safe[count++] = y * chunkWidth + x;
+            }
+        }
+        safe = Arrays.copyOf(safe, count);
+        Arrays.sort(safe);
+        return safe;
+    }
+    /**
+     * Map a position among the free tiles of a chunk to a position among all its tiles
+     * @param position the position among the free tiles
+     * @param safe the sorted positions of tiles to keep free
+     * @return the position among all tiles
+     */
+    private static int skipSafe(int position, int[] safe) {
+        for (int index : safe) {
+            if (index <= position) {
+                position++;
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,219 @@
+package minesweeper;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deducer
+ * Finds tiles that are certainly safe or certainly mines using several fields at once.
+ * Every field and every region split from a pair of them is given a range of possible
+ * mines, and the ranges are narrowed pair by pair until nothing changes. A region is
+ * only compared with its neighbours again when its own range narrows, so the work
+ * follows the changes rather than the whole board. Only fields as small as a number's
+ * are used, so the large fields covering the unknown rest of the board are left out
+ *
+ * @author Charlie Gregg
+ */
+public class Deducer {
+    private final static int MAX_REGIONS = 4096; // the most regions kept in one deduction, bounding the work
+    private final static int MAX_CELLS = Sweeper.MAX_SURROUNDING; // the largest field deduced from, as big as a number's field
+
+    private final FieldIndex index; // the fields being deduced from
+    private final int width; // the width of the board
+    private final Map<Region, Region> regions; // every region with a known range, by its tiles
+    private final Map<Integer, ArrayList<Region>> derived; // the regions made here covering each tile
+    private final ArrayDeque<Region> worklist; // regions whose range narrowed since they were last compared
+    private final Set<Region> settled; // regions found to be all mines or all safe, in the order found
+
+    public Deducer(FieldIndex index, int width) {
+        this.index = index;
+        this.width = width;
+        this.regions = new HashMap<>();
+        this.derived = new HashMap<>();
+        this.worklist = new ArrayDeque<>();
+        this.settled = new LinkedHashSet<>();
+    }
+    /**
+     * Narrow the ranges around some changed fields until nothing changes
+     * @param changed the fields to start from
+     * @return the fields found to be all mines or all safe which aren't already known
+     */
+    public ArrayList<Minefield> deduce(Collection<Minefield> changed) {
+        for (Minefield field : changed) {
+            if (field.size() <= MAX_CELLS) {
+                this.enqueue(this.of(field));
+            }
+        }
+        while (this.worklist.size() > 0) {
+            Region region = this.worklist.poll();
+            region.queued = false;
+            for (Region other : this.getTouching(region)) {
+                this.combine(region, other);
+            }
+        }
+        ArrayList<Minefield> found = new ArrayList<>();
+        for (Region region : this.settled) {
+            found.add(new Minefield(region.cells, region.min, this.width));
+        }
+        return found;
+    }
+    /**
+     * Get the region of a known field, adding it if it is new. A region already derived
+     * for the same tiles is narrowed to the field's exact count, and queued if that changed it
+     * @param field the field
+     * @return its region
+     */
+    private Region of(Minefield field) {
+        int mines = field.getMines();
+        Region probe = new Region(field.getCells(), mines, mines);
+        Region region = this.regions.putIfAbsent(probe, probe);
+        if (region == null) {
+            return probe;
+        }
+        if ((region.min != mines || region.max != mines) && region.min <= mines && mines <= region.max) {
+            region.min = mines;
+            region.max = mines;
+            this.settle(region);
+            this.enqueue(region);
+        }
+        return region;
+    }
+    /**
+     * Get the fields and derived regions sharing a tile with a region
+     * @param region the region
+     * @return the regions touching it, in a repeatable order
+     */
+    private Set<Region> getTouching(Region region) {
+        Set<Region> touching = new LinkedHashSet<>();
+        for (int cell : region.cells) {
+            for (Minefield field : this.index.getCovering(cell)) {
+                if (field.size() <= MAX_CELLS) {
+                    touching.add(this.of(field));
+                }
+            }
+            ArrayList<Region> covering = this.derived.get(cell);
+            if (covering != null) {
+                touching.addAll(covering);
+            }
+        }
+        touching.remove(region);
+        return touching;
+    }
+    /**
+     * Split two regions into the tiles only in the first, the shared tiles and
+     * the tiles only in the second, and narrow the range of each part
+     * @param a the first region
+     * @param b the second region
+     */
+    private void combine(Region a, Region b) {
+        int[] aCells = new int[a.cells.length];
+        int[] cCells = new int[Math.min(a.cells.length, b.cells.length)];
+        int[] bCells = new int[b.cells.length];
+        int i = 0, j = 0, aSize = 0, cSize = 0, bSize = 0;
+        while (i < a.cells.length || j < b.cells.length) {
+            if (j == b.cells.length || (i < a.cells.length && a.cells[i] < b.cells[j])) {
+                aCells[aSize++] = a.cells[i++];
+            } else if (i == a.cells.length || b.cells[j] < a.cells[i]) {
+                bCells[bSize++] = b.cells[j++];
+            } else {
+                cCells[cSize++] = a.cells[i++];
+                j++;
+            }
+        }
+        if (cSize == 0) {
+            return;
+        }
+        int cMin = Math.max(0, Math.max(a.min - aSize, b.min - bSize));
+        int cMax = Math.min(cSize, Math.min(a.max, b.max));
+        if (cMin > cMax) {
+            return; // the fields disagree, which only happens if the board lied
+        }
+        this.narrow(Arrays.copyOf(cCells, cSize), cMin, cMax);
+        this.narrow(Arrays.copyOf(aCells, aSize), a.min - cMax, a.max - cMin);
+        this.narrow(Arrays.copyOf(bCells, bSize), b.min - cMax, b.max - cMin);
+    }
+    /**
+     * Narrow the range of mines in some tiles, queueing them to be compared again if it changed
+     * @param cells the sorted tiles
+     * @param min the fewest mines they can hold
+     * @param max the most mines they can hold
+     */
+    private void narrow(int[] cells, int min, int max) {
+        min = Math.max(min, 0);
+        max = Math.min(max, cells.length);
+        if (cells.length == 0 || (min == 0 && max == cells.length)) {
+            return; // says nothing new
+        }
+        Region probe = new Region(cells, min, max);
+        Region region = this.regions.get(probe);
+        if (region == null) {
+            if (this.regions.size() >= MAX_REGIONS) {
+                return;
+            }
+            region = probe;
+            this.regions.put(region, region);
+            for (int cell : cells) {
+                this.derived.computeIfAbsent(cell, c -> new ArrayList<>()).add(region);
+            }
+        } else if (min <= region.min && max >= region.max) {
+            return;
+        } else {
+            region.min = Math.max(region.min, min);
+            region.max = Math.min(region.max, max);
+        }
+        this.settle(region);
+        this.enqueue(region);
+    }
+    /**
+     * Keep a region as found if its range says it is all mines or all safe
+     * @param region the region
+     */
+    private void settle(Region region) {
+        if (region.min == region.max && (region.min == 0 || region.min == region.cells.length)) {
+            this.settled.add(region);
+        }
+    }
+    /**
+     * Queue a region to be compared with its neighbours, unless it already is
+     * @param region the region
+     */
+    private void enqueue(Region region) {
+        if (!region.queued) {
+            region.queued = true;
+            this.worklist.add(region);
+        }
+    }
+
+    /**
+     * Region
+     * Some tiles and the range of mines they can hold, equal to another region with the same tiles
+     */
+    private static class Region {
+        private final int[] cells; // sorted board indices of the tiles
+        private final int hash; // hash of the tiles
+        private int min; // the fewest mines the tiles can hold
+        private int max; // the most mines the tiles can hold
+        private boolean queued; // true if the region is waiting in the worklist
+
+        private Region(int[] cells, int min, int max) {
+            this.cells = cells;
+            this.hash = Arrays.hashCode(cells);
+            this.min = min;
+            this.max = max;
+            this.queued = false;
+        }
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Region region && this.hash == region.hash && Arrays.equals(this.cells, region.cells);
+        }
+    }
+}
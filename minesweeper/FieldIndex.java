@@ -0,0 +1,307 @@
+package minesweeper;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * FieldIndex
+ * A set of fields with an index of the fields covering each tile,
+ * keeping track of which fields still need to be reduced
+ *
+ * @author Charlie Gregg
+ */
+public class FieldIndex {
+    private final Set<Minefield> fields; // all known fields
+    private final ArrayList<Set<Minefield>> cellList; // the fields covering each tile, by tile index, for a whole board
+    private final Map<Integer, Set<Minefield>> cellMap; // the fields covering each tile, for a small group of fields
+    private final Set<Minefield> changed; // fields not yet compared with the fields they touch
+    private final Set<Minefield> settled; // fields known to be all mines or all safe
+    private int unfilled; // the number of fields not known to be all mines
+    private long intersections; // pairs of fields intersected while reducing
+    private long reductions; // intersections which split the fields
+    private long deductions; // fields found by deducing from several fields at once
+
+    public FieldIndex(int tiles) {
+        this.fields = new LinkedHashSet<>();
+        this.cellList = tiles > 0 ? new ArrayList<>(tiles) : null;
+        this.cellMap = tiles > 0 ? null : new HashMap<>();
+        for (int i = 0; i < tiles; i++) {
+            this.cellList.add(null);
+        }
+        this.changed = new LinkedHashSet<>();
+        this.settled = new LinkedHashSet<>();
+        this.unfilled = 0;
+        this.intersections = 0;
+        this.reductions = 0;
+        this.deductions = 0;
+    }
+    public FieldIndex() {
+        this(0);
+    }
+    /**
+     * Add a field, marking it as changed
+     * @param field the field to add
+     */
+    public void add(Minefield field) {
+        this.add(field, true);
+    }
+    /**
+     * Add a field to the known fields and the index of fields by tile
+     * @param field the field to add
+     * @param change whether the field still needs to be reduced
+     */
+    public void add(Minefield field, boolean change) {
+        if (!field.exists() || !this.fields.add(field)) {
+            return;
+        }
+        for (int index : field.getCells()) {
+            Set<Minefield> covering = this.getCoveringOrNull(index);
+            if (covering == null) {
+                covering = new LinkedHashSet<>();
+                this.setCovering(index, covering);
+            }
+            covering.add(field);
+        }
+        if (change) {
+            this.changed.add(field);
+        }
+        if (field.empty() || field.filled()) {
+            this.settled.add(field);
+        }
+        if (!field.filled()) {
+            this.unfilled++;
+        }
+    }
+    /**
+     * Remove a field from the known fields and the index of fields by tile
+     * @param field the field to remove
+     */
+    public void remove(Minefield field) {
+        if (!this.fields.remove(field)) {
+            return;
+        }
+        for (int index : field.getCells()) {
+            Set<Minefield> covering = this.getCoveringOrNull(index);
+            covering.remove(field);
+            if (covering.isEmpty() && this.cellMap != null) {
+                this.setCovering(index, null); // keep the map to the tiles still covered
+            }
+        }
+        this.changed.remove(field);
+        this.settled.remove(field);
+        if (!field.filled()) {
+            this.unfilled--;
+        }
+    }
+    /**
+     * Get the fields covering a tile
+     * @param index the index of the tile
+     * @return the fields covering it, empty if there are none
+     */
+    public Set<Minefield> getCovering(int index) {
+        Set<Minefield> covering = this.getCoveringOrNull(index);
+        return covering == null ? Set.of() : covering;
+    }
+    /**
+     * Get the fields covering a tile from whichever index is in use
+     * @param index the index of the tile
+     * @return the fields covering it, or null if there are none
+     */
+    private Set<Minefield> getCoveringOrNull(int index) {
+        return this.cellList != null ? this.cellList.get(index) : this.cellMap.get(index);
+    }
+    /**
+     * Set the fields covering a tile in whichever index is in use
+     * @param index the index of the tile
+     * @param covering the fields covering it, or null if there are none
+     */
+    private void setCovering(int index, Set<Minefield> covering) {
+        if (this.cellList != null) {
+            this.cellList.set(index, covering);
+        } else if (covering == null) {
+            this.cellMap.remove(index);
+        } else {
+            this.cellMap.put(index, covering);
+        }
+    }
+    /**
+     * Get the other fields sharing at least one tile with a field
+     * @param field the field to check
+     * @return the fields touching it
+     */
+    public Set<Minefield> getTouching(Minefield field) {
+        Set<Minefield> touching = new LinkedHashSet<>();
+        for (int index : field.getCells()) {
+            touching.addAll(this.getCovering(index));
+        }
+        touching.remove(field);
+        return touching;
+    }
+    /**
+     * Reduce the size and overlap of changed fields with the fields they touch,
+     * until no changed fields are left. If that leaves no safe tiles to open, deduce
+     * from several fields at once around the fields that changed, repeating while
+     * that finds anything new
+     */
+    public void reduce() {
+        Set<Minefield> reduced = new LinkedHashSet<>(); // fields compared with their neighbours this time
+        Set<Minefield> deduced = new HashSet<>(); // fields already found by deduction this time
+        while (this.changed.size() > 0) {
+            this.reduceChanged(reduced);
+            reduced.retainAll(this.fields);
+            if (reduced.isEmpty() || this.hasSafe()) {
+                return;
+            }
+            Deducer deducer = new Deducer(this, reduced.iterator().next().getWidth());
+            for (Minefield field : deducer.deduce(reduced)) {
+                if (deduced.add(field) && !this.fields.contains(field)) {
+                    this.add(field);
+                    this.deductions++;
+                }
+            }
+            reduced.clear();
+        }
+    }
+    /**
+     * Check if any settled field is known to be all safe
+     * @return true if there is a safe tile to open
+     */
+    private boolean hasSafe() {
+        for (Minefield field : this.settled) {
+            if (field.empty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Intersect changed fields with the fields they touch, two at a time,
+     * until no changed fields are left
+     * @param reduced collects every field compared
+     */
+    private void reduceChanged(Set<Minefield> reduced) {
+        while (this.changed.size() > 0) {
+            Minefield aField = this.changed.iterator().next();
+            this.changed.remove(aField);
+            reduced.add(aField);
+            for (Minefield bField : this.getTouching(aField)) {
+                ArrayList<Minefield> result = Minefield.intersect(aField, bField);
+                this.intersections++;
+                if (result.size() > 0) {
+                    this.reductions++;
+                    this.remove(aField);
+                    this.remove(bField);
+                    for (Minefield newField : result) {
+                        this.add(newField);
+                    }
+                    break;
+                }
+            }
+        }
+    }
+    /**
+     * Split the changed fields, and every field connected to them through shared tiles,
+     * into groups which share no tiles with each other
+     * @return the groups, in the order their first changed field was changed
+     */
+    public ArrayList<ArrayList<Minefield>> getChangedComponents() {
+        ArrayList<ArrayList<Minefield>> components = new ArrayList<>();
+        Set<Minefield> seen = new HashSet<>();
+        BitSet seenCells = new BitSet(); // tiles whose covering fields are already queued
+        ArrayDeque<Minefield> queue = new ArrayDeque<>();
+        for (Minefield start : this.changed) {
+            if (!seen.add(start)) {
+                continue;
+            }
+            ArrayList<Minefield> component = new ArrayList<>();
+            queue.add(start);
+            while (queue.size() > 0) {
+                Minefield field = queue.poll();
+                component.add(field);
+                for (int index : field.getCells()) {
+                    if (seenCells.get(index)) {
+                        continue;
+                    }
+                    seenCells.set(index);
+                    for (Minefield other : this.getCovering(index)) {
+                        if (seen.add(other)) {
+                            queue.add(other);
+                        }
+                    }
+                }
+            }
+            components.add(component);
+        }
+        return components;
+    }
+    /**
+     * Check if a field still needs to be reduced
+     * @param field the field to check
+     * @return true if the field has changed
+     */
+    public boolean isChanged(Minefield field) {
+        return this.changed.contains(field);
+    }
+    /**
+     * Get the number of fields still needing to be reduced
+     * @return the number of changed fields
+     */
+    public int getChangedCount() {
+        return this.changed.size();
+    }
+    /**
+     * Mark every field as reduced
+     */
+    public void clearChanged() {
+        this.changed.clear();
+    }
+    /**
+     * Take the fields known to be all mines or all safe
+     * @return the settled fields, which are no longer tracked as settled
+     */
+    public ArrayList<Minefield> takeSettled() {
+        ArrayList<Minefield> taken = new ArrayList<>(this.settled);
+        this.settled.clear();
+        return taken;
+    }
+    /**
+     * Get all known fields
+     * @return the known fields, in the order they were added
+     */
+    public Set<Minefield> getFields() {
+        return this.fields;
+    }
+    /**
+     * Get the number of fields not known to be all mines
+     * @return the number of unfilled fields
+     */
+    public int getUnfilled() {
+        return this.unfilled;
+    }
+    /**
+     * Get the number of pairs of fields intersected while reducing
+     * @return the total since the index was made
+     */
+    public long getIntersections() {
+        return this.intersections;
+    }
+    /**
+     * Get the number of intersections which split the fields
+     * @return the total since the index was made
+     */
+    public long getReductions() {
+        return this.reductions;
+    }
+    /**
+     * Get the number of fields found by deducing from several fields at once
+     * @return the total since the index was made
+     */
+    public long getDeductions() {
+        return this.deductions;
+    }
+}
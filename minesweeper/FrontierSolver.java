@@ -0,0 +1,517 @@
+package minesweeper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * FrontierSolver
+ * Works out the chance of each unopened tile being a mine, by splitting the
+ * unopened tiles next to numbers into independent groups, counting every
+ * consistent layout of each group and weighting them by how many ways the
+ * remaining mines fit into the tiles away from the numbers
+ *
+ * @author Charlie Gregg
+ */
+public class FrontierSolver {
+    private final int maxExactCells; // largest group counted exactly, bigger groups are sampled
+    private final long nodeBudget; // most search steps spent counting one group exactly
+    private final long timeBudget; // most nanoseconds spent counting one group exactly, 0 for no limit
+    private final int samples; // layouts drawn for a group too big to count exactly
+    private final Map<Key, Component> cache; // counted groups, reused while the numbers around them stay the same
+
+    private final static int CACHE_SIZE = 4096; // most groups kept in the cache
+
+    /**
+     * @param maxExactCells the largest group counted exactly, bigger groups are sampled
+     * @param nodeBudget the most search steps spent counting one group exactly before sampling it instead
+     * @param timeBudget the most nanoseconds spent counting one group exactly before sampling it instead, 0 for no limit
+     * @param samples the layouts drawn for a group too big to count exactly
+     */
+    public FrontierSolver(int maxExactCells, long nodeBudget, long timeBudget, int samples) {
+        this.maxExactCells = maxExactCells;
+        this.nodeBudget = nodeBudget;
+        this.timeBudget = timeBudget;
+        this.samples = samples;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Component> eldest) {
+                return this.size() > CACHE_SIZE;
+            }
+        };
+    }
+    public FrontierSolver() {
+        this(48, 2_000_000, 0, 200);
+    }
+    /**
+     * Work out the chance of every unopened tile being a mine
+     * @param board the board to solve
+     * @param rand the source of randomness for sampling large groups
+     * @return the chances of each unopened tile
+     */
+    public Probabilities solve(Sweeper board, Random rand) {
+        int[] touching = new int[Sweeper.MAX_SURROUNDING];
+        ArrayList<Integer> boundary = new ArrayList<>(); // open tiles touching unopened tiles
+        board.forEachOpen(index -> {
+            if (board.getTouching(index, touching) > 0) {
+                boundary.add(index);
+            }
+        });
+        Map<Integer, Integer> frontierId = new HashMap<>(); // position of each tile in the frontier
+        int[] frontier = new int[16]; // board indices of unopened tiles next to a number
+        int frontierSize = 0;
+        ArrayList<int[]> constraints = new ArrayList<>(); // frontier positions followed by the mine count
+        for (int index : boundary) {
+            int count = board.getTouching(index, touching);
+            int[] constraint = new int[count + 1];
+            for (int i = 0; i < count; i++) {
+                Integer id = frontierId.get(touching[i]);
+                if (id == null) {
+                    if (frontierSize == frontier.length) {
+                        frontier = Arrays.copyOf(frontier, frontierSize * 2);
+                    }
+                    id = frontierSize;
+                    frontierId.put(touching[i], id);
+                    frontier[frontierSize++] = touching[i];
+                }
+                constraint[i] = id;
+            }
+            constraint[count] = board.getNeighbours(index);
+            constraints.add(constraint);
+        }
+        int outside = board.getRemainingSpaces() - frontierSize; // unopened tiles not next to any number
+
+        ArrayList<Component> components = new ArrayList<>();
+        for (ArrayList<int[]> group : FrontierSolver.group(constraints, frontierSize)) {
+            components.add(this.count(group, frontier, rand));
+        }
+        return FrontierSolver.combine(components, frontier, frontierSize, outside, board.mineCount);
+    }
+    /**
+     * Split the constraints into groups that share no tiles
+     * @param constraints the constraints over frontier positions
+     * @param frontierSize the number of frontier tiles
+     * @return the constraints of each group
+     */
+    private static ArrayList<ArrayList<int[]>> group(ArrayList<int[]> constraints, int frontierSize) {
+        int[] parent = new int[frontierSize];
+        for (int i = 0; i < frontierSize; i++) {
+            parent[i] = i;
+        }
+        for (int[] constraint : constraints) {
+            for (int i = 1; i < constraint.length - 1; i++) {
+                int a = FrontierSolver.find(parent, constraint[0]);
+                int b = FrontierSolver.find(parent, constraint[i]);
+                parent[Math.max(a, b)] = Math.min(a, b);
+            }
+        }
+        Map<Integer, ArrayList<int[]>> groups = new LinkedHashMap<>();
+        for (int[] constraint : constraints) {
+            groups.computeIfAbsent(FrontierSolver.find(parent, constraint[0]), root -> new ArrayList<>()).add(constraint);
+        }
+        return new ArrayList<>(groups.values());
+    }
+    /**
+     * Find the root of a union-find tree, halving the path on the way
+     * @param parent the parent of each node
+     * @param node the node to find the root of
+     * @return the root
+     */
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+    /**
+     * Count the layouts of one group, from the cache if it has been seen before
+     * @param group the constraints of the group over frontier positions
+     * @param frontier the board index of each frontier position
+     * @param rand the source of randomness for sampling
+     * @return the counted group
+     */
+    private Component count(ArrayList<int[]> group, int[] frontier, Random rand) {
+        // renumber the group's tiles from 0, in the order the constraints reach them
+        Map<Integer, Integer> local = new LinkedHashMap<>();
+        for (int[] constraint : group) {
+            for (int i = 0; i < constraint.length - 1; i++) {
+                local.putIfAbsent(constraint[i], local.size());
+            }
+        }
+        int[] cells = new int[local.size()];
+        for (Map.Entry<Integer, Integer> entry : local.entrySet()) {
+            cells[entry.getValue()] = frontier[entry.getKey()];
+        }
+        int[][] localConstraints = new int[group.size()][];
+        int keyLength = cells.length + 1;
+        for (int c = 0; c < group.size(); c++) {
+            int[] constraint = group.get(c);
+            localConstraints[c] = new int[constraint.length];
+            for (int i = 0; i < constraint.length - 1; i++) {
+                localConstraints[c][i] = local.get(constraint[i]);
+            }
+            localConstraints[c][constraint.length - 1] = constraint[constraint.length - 1];
+            keyLength += constraint.length + 1;
+        }
+        int[] keyData = new int[keyLength];
+        int k = 0;
+        for (int cell : cells) {
+            keyData[k++] = cell;
+        }
+        keyData[k++] = -1;
+        for (int[] constraint : localConstraints) {
+            for (int value : constraint) {
+                keyData[k++] = value;
+            }
+            keyData[k++] = -1;
+        }
+        Key key = new Key(keyData);
+        Component cached = this.cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        Search search = new Search(cells.length, localConstraints);
+        if (cells.length <= this.maxExactCells && search.enumerate(this.nodeBudget, this.timeBudget)) {
+            Component component = search.toComponent(cells);
+            this.cache.put(key, component);
+            return component;
+        }
+        search.sample(this.samples, this.nodeBudget, rand);
+        return search.toComponent(cells);
+    }
+    /**
+     * Combine the counted groups with the tiles away from the numbers
+     * @param components the counted groups
+     * @param frontier the board index of each frontier position
+     * @param frontierSize the number of frontier tiles
+     * @param outside the number of unopened tiles away from the numbers
+     * @param mineCount the number of mines on the board
+     * @return the chance of each tile being a mine
+     */
+    private static Probabilities combine(ArrayList<Component> components, int[] frontier, int frontierSize,
+                                         int outside, int mineCount) {
+        int groups = components.size();
+        // prefix[i] is the ways to place t mines over groups before i, suffix[i] over groups from i on
+        double[][] prefix = new double[groups + 1][];
+        double[][] suffix = new double[groups + 1][];
+        int[] prefixLow = new int[groups + 1];
+        int[] suffixLow = new int[groups + 1];
+        prefix[0] = new double[] {1};
+        suffix[groups] = new double[] {1};
+        for (int i = 0; i < groups; i++) {
+            Component component = components.get(i);
+            prefix[i + 1] = FrontierSolver.convolve(prefix[i], component.counts());
+            prefixLow[i + 1] = prefixLow[i] + component.minMines();
+        }
+        for (int i = groups - 1; i >= 0; i--) {
+            Component component = components.get(i);
+            suffix[i] = FrontierSolver.convolve(suffix[i + 1], component.counts());
+            suffixLow[i] = suffixLow[i + 1] + component.minMines();
+        }
+        int totalLow = prefixLow[groups];
+        int totalHigh = totalLow + prefix[groups].length - 1;
+        double[] weights = FrontierSolver.outsideWeights(outside, mineCount, totalLow, totalHigh);
+
+        int[] cells = new int[frontierSize];
+        double[] cellChances = new double[frontierSize];
+        int position = 0;
+        for (int i = 0; i < groups; i++) {
+            Component component = components.get(i);
+            double[] others = FrontierSolver.convolve(prefix[i], suffix[i + 1]);
+            int othersLow = prefixLow[i] + suffixLow[i + 1];
+            int size = component.cells().length;
+            // weight of each mine count in this group, summed over the other groups and outside tiles
+            double[] groupWeights = new double[component.counts().length];
+            double total = 0;
+            for (int m = 0; m < groupWeights.length; m++) {
+                for (int t = 0; t < others.length; t++) {
+                    groupWeights[m] += others[t] * weights[component.minMines() + m + othersLow + t - totalLow];
+                }
+                total += component.counts()[m] * groupWeights[m];
+            }
+            for (int v = 0; v < size; v++) {
+                double mine = 0;
+                for (int m = 0; m < groupWeights.length; m++) {
+                    mine += component.cellCounts()[m * size + v] * groupWeights[m];
+                }
+                cells[position] = component.cells()[v];
+                cellChances[position++] = total > 0 ? mine / total : 0.5;
+            }
+        }
+        double expected = 0;
+        double total = 0;
+        double[] all = prefix[groups];
+        for (int t = 0; t < all.length; t++) {
+            total += all[t] * weights[t];
+            expected += all[t] * weights[t] * (mineCount - totalLow - t);
+        }
+        double outsideChance = outside == 0 ? 1 : (total > 0 ? expected / total / outside : (double) mineCount / outside);
+        return new Probabilities(cells, cellChances, outside, Math.min(Math.max(outsideChance, 0), 1));
+    }
+    /**
+     * Get the relative number of ways to place the rest of the mines in the tiles away from the numbers,
+     * for each number of mines among the numbered tiles
+     * @param outside the number of tiles away from the numbers
+     * @param mineCount the number of mines on the board
+     * @param low the fewest mines among the numbered tiles
+     * @param high the most mines among the numbered tiles
+     * @return the relative weight of each count from low to high
+     */
+    private static double[] outsideWeights(int outside, int mineCount, int low, int high) {
+        double[] logs = new double[high - low + 1];
+        boolean[] possible = new boolean[logs.length];
+        // log C(outside, r) relative to the smallest valid r, going up one r at a time
+        int rLow = Math.max(0, mineCount - high);
+        double logC = 0;
+        double best = Double.NEGATIVE_INFINITY;
+        for (int r = rLow; r <= Math.min(outside, mineCount - low); r++) {
+            if (r > rLow) {
+                logC += Math.log(outside - r + 1) - Math.log(r);
+            }
+            int t = mineCount - r - low;
+            logs[t] = logC;
+            possible[t] = true;
+            best = Math.max(best, logC);
+        }
+        double[] weights = new double[logs.length];
+        for (int t = 0; t < logs.length; t++) {
+            weights[t] = possible[t] ? Math.exp(logs[t] - best) : 0;
+        }
+        return weights;
+    }
+    /**
+     * Multiply two polynomials of counts, scaling the result so it can't overflow
+     * @param a the first counts
+     * @param b the second counts
+     * @return the combined counts
+     */
+    private static double[] convolve(double[] a, double[] b) {
+        double[] result = new double[a.length + b.length - 1];
+        double max = 0;
+        for (int i = 0; i < a.length; i++) {
+            for (int j = 0; j < b.length; j++) {
+                result[i + j] += a[i] * b[j];
+            }
+        }
+        for (double value : result) {
+            max = Math.max(max, value);
+        }
+        if (max > 0) {
+            for (int i = 0; i < result.length; i++) {
+                result[i] /= max;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Search
+     * A backtracking search over the layouts of one group
+     */
+    private static class Search {
+        private final int size; // the number of tiles in the group
+        private final int[][] constraints; // tile positions followed by the mine count
+        private final int[][] cellConstraints; // the constraints each tile is in
+        private final int[] assigned; // 1 for a mine, 0 for safe, -1 unassigned
+        private final int[] mines; // mines assigned in each constraint
+        private final int[] unassigned; // tiles left to assign in each constraint
+        private final double[] counts; // layouts found with each number of mines
+        private final double[] cellCounts; // layouts with each tile a mine, by mine count then tile
+        private long nodes; // search steps taken so far
+        private long nodeLimit; // search steps allowed
+        private long deadline; // time to give up at, or 0 for no limit
+        private boolean stopped; // true if the search ran out of budget
+
+        Search(int size, int[][] constraints) {
+            this.size = size;
+            this.constraints = constraints;
+            int[] memberships = new int[size];
+            for (int[] constraint : constraints) {
+                for (int i = 0; i < constraint.length - 1; i++) {
+                    memberships[constraint[i]]++;
+                }
+            }
+            this.cellConstraints = new int[size][];
+            for (int v = 0; v < size; v++) {
+                this.cellConstraints[v] = new int[memberships[v]];
+            }
+            for (int c = 0; c < constraints.length; c++) {
+                for (int i = 0; i < constraints[c].length - 1; i++) {
+                    int v = constraints[c][i];
+                    this.cellConstraints[v][--memberships[v]] = c;
+                }
+            }
+            this.assigned = new int[size];
+            Arrays.fill(this.assigned, -1);
+            this.mines = new int[constraints.length];
+            this.unassigned = new int[constraints.length];
+            for (int c = 0; c < constraints.length; c++) {
+                this.unassigned[c] = constraints[c].length - 1;
+            }
+            this.counts = new double[size + 1];
+            this.cellCounts = new double[(size + 1) * size];
+        }
+        /**
+         * Count every layout exactly
+         * @param nodeLimit the most search steps to take
+         * @param timeLimit the most nanoseconds to take, or 0 for no limit
+         * @return true if every layout was counted within budget
+         */
+        boolean enumerate(long nodeLimit, long timeLimit) {
+            this.nodeLimit = nodeLimit;
+            this.deadline = timeLimit > 0 ? System.nanoTime() + timeLimit : 0;
+            this.search(0, 0, null);
+            return !this.stopped;
+        }
+        /**
+         * Collect random layouts, for groups too big to count
+         * @param samples the number of layouts to look for
+         * @param nodeLimit the most search steps to take in total
+         * @param rand the source of randomness
+         */
+        void sample(int samples, long nodeLimit, Random rand) {
+            Arrays.fill(this.counts, 0);
+            Arrays.fill(this.cellCounts, 0);
+            this.nodes = 0;
+            this.nodeLimit = nodeLimit;
+            this.deadline = 0;
+            for (int s = 0; s < samples && this.nodes < nodeLimit; s++) {
+                this.stopped = false;
+                this.search(0, 0, rand);
+            }
+        }
+        /**
+         * Assign the tile at a depth and carry on, recording complete layouts
+         * @param depth the number of tiles already assigned
+         * @param placed the number of mines already placed
+         * @param rand the source of randomness when sampling, stopping at the first layout found
+         */
+        private void search(int depth, int placed, Random rand) {
+            if (this.stopped) {
+                return;
+            }
+            if (++this.nodes > this.nodeLimit
+                || (this.deadline != 0 && (this.nodes & 1023) == 0 && System.nanoTime() > this.deadline)) {
+                this.stopped = true;
+                return;
+            }
+            if (depth == this.size) {
+                this.counts[placed]++;
+                for (int v = 0; v < this.size; v++) {
+                    this.cellCounts[placed * this.size + v] += this.assigned[v];
+                }
+                if (rand != null) {
+                    this.stopped = true; // one layout per sample
+                }
+                return;
+            }
+            int v = depth; // tiles are numbered in the order constraints reach them, so neighbours are assigned together
+            int first = rand != null && rand.nextBoolean() ? 1 : 0;
+            for (int pick = 0; pick < 2; pick++) {
+                int value = first ^ pick;
+                if (this.assign(v, value)) {
+                    this.search(depth + 1, placed + value, rand);
+                }
+                this.unassign(v, value);
+                if (this.stopped) {
+                    return;
+                }
+            }
+        }
+        /**
+         * Assign a tile and check every constraint it is in can still be met
+         * @param v the tile to assign
+         * @param value 1 for a mine, 0 for safe
+         * @return true if the constraints can still be met
+         */
+        private boolean assign(int v, int value) {
+            this.assigned[v] = value;
+            boolean valid = true;
+            for (int c : this.cellConstraints[v]) {
+                this.mines[c] += value;
+                this.unassigned[c]--;
+                int target = this.constraints[c][this.constraints[c].length - 1];
+                if (this.mines[c] > target || this.mines[c] + this.unassigned[c] < target) {
+                    valid = false;
+                }
+            }
+            return valid;
+        }
+        /**
+         * Undo assigning a tile
+         * @param v the tile to unassign
+         * @param value the value it was assigned
+         */
+        private void unassign(int v, int value) {
+            this.assigned[v] = -1;
+            for (int c : this.cellConstraints[v]) {
+                this.mines[c] -= value;
+                this.unassigned[c]++;
+            }
+        }
+        /**
+         * Trim the counts down to the mine counts that were found
+         * @param cells the board index of each tile
+         * @return the counted group
+         */
+        Component toComponent(int[] cells) {
+            int low = 0;
+            while (low < this.size && this.counts[low] == 0) {
+                low++;
+            }
+            int high = this.size;
+            while (high > low && this.counts[high] == 0) {
+                high--;
+            }
+            return new Component(
+                cells, low,
+                Arrays.copyOfRange(this.counts, low, high + 1),
+                Arrays.copyOfRange(this.cellCounts, low * this.size, (high + 1) * this.size)
+            );
+        }
+    }
+    /**
+     * Key
+     * The tiles and constraints of a group, compared by content
+     */
+    private static class Key {
+        private final int[] data; // the tiles and constraints
+        private final int hash; // cached hash code
+
+        Key(int[] data) {
+            this.data = data;
+            this.hash = Arrays.hashCode(data);
+        }
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && Arrays.equals(this.data, ((Key) other).data);
+        }
+    }
+}
+/**
+ * Component
+ * The layouts of a group of tiles that share constraints
+ *
+ * @param cells the board index of each tile in the group
+ * @param minMines the fewest mines in any layout
+ * @param counts the number of layouts with each number of mines from minMines up
+ * @param cellCounts the number of those layouts with each tile a mine, by mine count then tile
+ */
+record Component(int[] cells, int minMines, double[] counts, double[] cellCounts) {}
+/**
+ * Probabilities
+ * The chance of each unopened tile being a mine
+ *
+ * @param cells the board indices of the tiles next to numbers
+ * @param chances the chance of each of those tiles being a mine
+ * @param outside the number of unopened tiles away from any number
+ * @param outsideChance the chance of each tile away from the numbers being a mine
+ */
+record Probabilities(int[] cells, double[] chances, int outside, double outsideChance) {}
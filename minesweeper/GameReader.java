@@ -0,0 +1,255 @@
+package minesweeper;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * GameReader
+ * Streams games back out of an archive written by GameWriter, reading
+ * through a small buffer so archives of any size can be replayed
+ *
+ * @author Charlie Gregg
+ */
+public class GameReader implements AutoCloseable {
+    private final FileChannel channel; // the archive
+    private final ByteBuffer buffer; // bytes read from the archive but not yet used
+    private final long[] index; // the offset of every interval'th game
+    private final long interval; // games between entries in the index
+    private Game game; // the game being read, or null before the first
+    private long games; // games started so far, including the current one
+    private boolean moves; // true while the current game has unread moves
+
+    public GameReader(Path archive) throws IOException {
+        this.channel = FileChannel.open(archive, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocate(1 << 16).limit(0);
+        byte[] magic = new byte[GameWriter.MAGIC.length];
+        for (int i = 0; i < magic.length; i++) {
+            magic[i] = (byte) this.readByte();
+        }
+        if (!Arrays.equals(magic, GameWriter.MAGIC)) {
+            throw new IOException("Not a game archive: " + archive);
+        }
+        Path indexPath = GameWriter.indexPath(archive);
+        if (Files.exists(indexPath)) {
+            ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(indexPath));
+            this.interval = entries.getLong();
+            this.index = new long[entries.remaining() / Long.BYTES];
+            entries.asLongBuffer().get(this.index);
+        } else {
+            this.interval = GameWriter.INDEX_INTERVAL;
+            this.index = new long[0];
+        }
+        this.game = null;
+        this.games = 0;
+        this.moves = false;
+    }
+    /**
+     * Move to the start of the next game, skipping any moves left in the current one
+     * @return the header of the next game, or null at the end of the archive
+     */
+    public Game nextGame() throws IOException {
+        while (this.moves) {
+            this.nextMove();
+        }
+        if (!this.fill()) {
+            this.game = null;
+            return null;
+        }
+        int width = (int) this.readVarint();
+        int height = (int) this.readVarint();
+        int mineCount = (int) this.readVarint();
+        long seed = this.readLong();
+        double mineChance = Double.longBitsToDouble(this.readLong());
+        int planting = this.readByte();
+        boolean chunked = (planting & GameWriter.CHUNKED) != 0;
+        this.game = new Game(this.games, width, height, mineCount, seed, mineChance,
+                             Sweeper.Planting.values()[planting & ~GameWriter.CHUNKED], chunked);
+        this.games++;
+        this.moves = true;
+        return this.game;
+    }
+    /**
+     * Read the next move of the current game
+     * @return the move, the tile index shifted left 2 with the op code below it,
+     * or -1 once the game has no moves left
+     */
+    public long nextMove() throws IOException {
+        if (!this.moves) {
+            return -1;
+        }
+        long move = this.readVarint();
+        if ((move & 3) == GameWriter.END) {
+            this.moves = false;
+            return -1;
+        }
+        return move;
+    }
+    /**
+     * Play the rest of the current game on a fresh board
+     * @return the board after every move, or null if no game has been started
+     */
+    public Sweeper replay() throws IOException {
+        if (this.game == null) {
+            return null;
+        }
+        Sweeper board = this.game.newBoard();
+        for (long move = this.nextMove(); move != -1; move = this.nextMove()) {
+            MineTile space = board.getTile((int) (move >>> 2));
+            switch ((int) (move & 3)) {
+                case GameWriter.OPEN -> board.cascade(space);
+                case GameWriter.FLAG -> board.setFlag(space, true);
+                case GameWriter.UNFLAG -> board.setFlag(space, false);
+                default -> throw new IOException("Bad move " + move + " in game " + this.game.number());
+            }
+        }
+        return board;
+    }
+    /**
+     * Move to just before a game, so the next call to nextGame reads it,
+     * jumping to the nearest indexed game then skipping forward
+     * @param number the number of the game, counting from 0
+     */
+    public void seek(long number) throws IOException {
+        int entry = (int) Math.min(number / this.interval, this.index.length - 1); // -1 if there is no index
+        long start = entry >= 0 ? entry * this.interval : 0; // the game jumped to
+        if (number < this.games || start > this.games) {
+            this.channel.position(entry >= 0 ? this.index[entry] : GameWriter.MAGIC.length);
+            this.buffer.limit(0);
+            this.games = start;
+            this.moves = false;
+        }
+        while (this.games < number && this.nextGame() != null);
+        while (this.moves) {
+            this.nextMove();
+        }
+        this.game = null;
+    }
+    /**
+     * Count the games in the archive, reading only those after the last indexed game
+     * @return the number of games
+     */
+    long countGames() throws IOException {
+        this.seek(this.index.length > 0 ? (this.index.length - 1) * this.interval : 0);
+        while (this.nextGame() != null);
+        return this.games;
+    }
+    /**
+     * Get the number of games between entries in the index
+     * @return the interval
+     */
+    long getInterval() {
+        return this.interval;
+    }
+    /**
+     * Make sure at least one byte is buffered
+     * @return false if the archive has no more bytes
+     */
+    private boolean fill() throws IOException {
+        if (this.buffer.hasRemaining()) {
+            return true;
+        }
+        this.buffer.clear();
+        int read = this.channel.read(this.buffer);
+        this.buffer.flip();
+        return read > 0;
+    }
+    /**
+     * Read one byte
+     * @return the byte, from 0 to 255
+     */
+    private int readByte() throws IOException {
+        if (!this.fill()) {
+            throw new EOFException("Game archive ends part way through a game");
+        }
+        return this.buffer.get() & 0xFF;
+    }
+    /**
+     * Read a number written 8 bytes, high bits first
+     * @return the number
+     */
+    private long readLong() throws IOException {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | this.readByte();
+        }
+        return value;
+    }
+    /**
+     * Read a number written 7 bits at a time, low bits first
+     * @return the number
+     */
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0;; shift += 7) {
+            int b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+    /**
+     * Close the archive
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+
+    /**
+     * Replay every game in an archive from the command line, counting the results
+     * Arguments: <archive> [first game]
+     */
+    public static void main(String args[]) throws IOException {
+        try (GameReader reader = new GameReader(Path.of(args[0]))) {
+            if (args.length > 1) {
+                reader.seek(Long.parseLong(args[1]));
+            }
+            long wins = 0, losses = 0, unfinished = 0;
+            while (reader.nextGame() != null) {
+                Sweeper board = reader.replay();
+                if (board.hitLocation.x() >= 0) {
+                    losses++;
+                } else if (board.remainingSpaces == board.mineCount) {
+                    wins++;
+                } else {
+                    unfinished++;
+                }
+            }
+            System.out.println("wins=" + wins + " losses=" + losses + " unfinished=" + unfinished);
+        }
+    }
+}
+
+/**
+ * Game
+ * The header of a recorded game
+ * @param number the position of the game in its archive, counting from 0
+ * @param width the width of the board
+ * @param height the height of the board
+ * @param mineCount the number of mines on the board
+ * @param seed the seed the board was generated from
+ * @param mineChance the chance of a mine being on each tile
+ * @param planting how mines were placed on the first opening
+ * @param chunked true if the board was split into chunks, which places its mines differently
+ */
+record Game(long number, int width, int height, int mineCount, long seed, double mineChance, Sweeper.Planting planting, boolean chunked) {
+    private final static int REPLAY_CHUNKS = 64; // chunks kept built while replaying a chunked game
+
+    /**
+     * Build the board this game started on
+     * @return a new board of the same kind, generating the same mines when first opened
+     */
+    public Sweeper newBoard() {
+        Sweeper board = this.chunked
+            ? Sweeper.chunked(this.mineChance, this.width, this.height, this.seed, REPLAY_CHUNKS, null)
+            : new Sweeper(this.mineChance, this.width, this.height, this.seed);
+        board.setPlanting(this.planting);
+        return board;
+    }
+}
@@ -0,0 +1,164 @@
+package minesweeper;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * GameWriter
+ * Writes games to a compact binary archive, with an index of where every
+ * few games start so a reader can seek without scanning the whole archive.
+ * Games are written one at a time, starting when a board is given this record.
+ * Opening an archive that already exists adds games after the ones it holds
+ *
+ * An archive is the magic bytes then each game in turn. A game is a header of
+ * width, height and mine count as varints, the seed and mine chance as 8 bytes each
+ * and the planting as 1 byte, with its top bit set if the board was chunked, then
+ * one varint per move holding the tile index shifted left 2 with the op code below it,
+ * ending with a 0
+ *
+ * The index file holds the interval then the offset of every interval'th game, all 8 bytes each
+ *
+ * @author Charlie Gregg
+ */
+public class GameWriter implements AutoCloseable {
+    final static byte[] MAGIC = {'M', 'S', 'G', '1'}; // the bytes every archive starts with
+    final static int END = 0; // op code ending a game
+    final static int OPEN = 1; // op code for opening a tile
+    final static int FLAG = 2; // op code for flagging a tile
+    final static int UNFLAG = 3; // op code for removing a flag
+    final static int INDEX_INTERVAL = 1024; // games between entries in the index of a new archive
+    final static int CHUNKED = 0x80; // bit set in the planting byte if the board was chunked
+
+    private final DataOutputStream out; // the archive
+    private final DataOutputStream index; // the index of game offsets
+    private final long interval; // games between entries in the index
+    private long offset; // bytes written to the archive so far
+    private long games; // games started so far, including those already in the archive
+    private boolean playing; // true while a game has been started but not ended
+
+    public GameWriter(Path archive) throws IOException {
+        Path indexPath = GameWriter.indexPath(archive);
+        if (Files.exists(archive) && Files.size(archive) > 0) {
+            if (!Files.exists(indexPath)) {
+                throw new IOException("Game archive has no index: " + archive);
+            }
+            try (GameReader reader = new GameReader(archive)) {
+                this.games = reader.countGames();
+                this.interval = reader.getInterval();
+            }
+            this.offset = Files.size(archive);
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archive, StandardOpenOption.APPEND), 1 << 16));
+            this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath, StandardOpenOption.APPEND)));
+        } else {
+            this.games = 0;
+            this.interval = INDEX_INTERVAL;
+            this.offset = MAGIC.length;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archive), 1 << 16));
+            this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexPath)));
+            this.out.write(MAGIC);
+            this.index.writeLong(this.interval);
+        }
+        this.playing = false;
+    }
+    /**
+     * Get the path of the index kept beside an archive
+     * @param archive the path of the archive
+     * @return the path of its index
+     */
+    static Path indexPath(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + ".idx");
+    }
+    /**
+     * Start a new game, ending the last one
+     * @param board the board the game is played on, before any moves are made
+     */
+    public void begin(Sweeper board) {
+        try {
+            this.endGame();
+            if (this.games % this.interval == 0) {
+                this.index.writeLong(this.offset);
+            }
+            this.writeVarint(board.width);
+            this.writeVarint(board.height);
+            this.writeVarint(board.mineCount);
+            this.out.writeLong(board.seed);
+            this.out.writeDouble(board.mineChance);
+            this.out.writeByte(board.getPlanting().ordinal() | (board.isChunked() ? CHUNKED : 0));
+            this.offset += 17;
+            this.games++;
+            this.playing = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+     * Record opening a tile
+     * @param index the index of the tile
+     */
+    public void open(int index) {
+        this.move(index, OPEN);
+    }
+    /**
+     * Record flagging or unflagging a tile
+     * @param index the index of the tile
+     * @param flag whether the tile was flagged
+     */
+    public void flag(int index, boolean flag) {
+        this.move(index, flag ? FLAG : UNFLAG);
+    }
+    /**
+     * Record a move in the current game
+     * @param index the index of the tile
+     * @param op the op code of the move
+     */
+    private void move(int index, int op) {
+        try {
+            this.writeVarint(((long) index << 2) | op);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    /**
+     * End the current game, if there is one
+     */
+    private void endGame() throws IOException {
+        if (this.playing) {
+            this.writeVarint(END);
+            this.playing = false;
+        }
+    }
+    /**
+     * Write a number 7 bits at a time, low bits first, setting the top bit
+     * of every byte but the last
+     * @param value the number to write, must not be negative
+     */
+    private void writeVarint(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            this.out.writeByte((int) (value & 0x7F) | 0x80);
+            this.offset++;
+            value >>>= 7;
+        }
+        this.out.writeByte((int) value);
+        this.offset++;
+    }
+    /**
+     * Get the number of games in the archive, including any it held when opened
+     * @return the number of games
+     */
+    public long getGames() {
+        return this.games;
+    }
+    /**
+     * End the current game and close the archive and index
+     */
+    @Override
+    public void close() throws IOException {
+        this.endGame();
+        this.out.close();
+        this.index.close();
+    }
+}
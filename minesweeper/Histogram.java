@@ -0,0 +1,99 @@
+package minesweeper;
+import java.util.Arrays;
+
+/**
+ * Histogram
+ * Counts values in power of two buckets, so recording is quick and
+ * the memory used doesn't depend on how many values are recorded
+ *
+ * @author Charlie Gregg
+ */
+public class Histogram {
+    private final long[] buckets; // values recorded in each bucket, bucket b holds values b bits long
+    private long count; // values recorded
+    private long sum; // total of the values recorded
+    private long max; // largest value recorded
+
+    public Histogram() {
+        this.buckets = new long[Long.SIZE];
+        this.count = 0;
+        this.sum = 0;
+        this.max = 0;
+    }
+    /**
+     * Record a value
+     * @param value the value, negative values count as 0
+     */
+    public synchronized void record(long value) {
+        value = Math.max(value, 0);
+        this.buckets[Long.SIZE - Long.numberOfLeadingZeros(value)]++;
+        this.count++;
+        this.sum += value;
+        this.max = Math.max(this.max, value);
+    }
+    /**
+     * Forget every value recorded
+     */
+    public synchronized void reset() {
+        Arrays.fill(this.buckets, 0);
+        this.count = 0;
+        this.sum = 0;
+        this.max = 0;
+    }
+    /**
+     * Get the number of values recorded
+     * @return the count
+     */
+    public synchronized long getCount() {
+        return this.count;
+    }
+    /**
+     * Get the total of the values recorded
+     * @return the sum
+     */
+    public synchronized long getSum() {
+        return this.sum;
+    }
+    /**
+     * Get the largest value recorded
+     * @return the largest value, 0 if none have been recorded
+     */
+    public synchronized long getMax() {
+        return this.max;
+    }
+    /**
+     * Get the mean of the values recorded
+     * @return the mean, 0 if none have been recorded
+     */
+    public synchronized double getMean() {
+        return this.count > 0 ? (double) this.sum / this.count : 0;
+    }
+    /**
+     * Get an upper bound on a percentile of the values recorded
+     * @param fraction the percentile as a fraction (0-1)
+     * @return the top of the bucket holding that percentile, never above the largest value
+     */
+    public synchronized long getPercentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * this.count);
+        long seen = 0;
+        for (int b = 0; b < this.buckets.length; b++) {
+            seen += this.buckets[b];
+            if (seen >= rank && seen > 0) {
+                return b == 0 ? 0 : Math.min(this.max, (1L << b) - 1);
+            }
+        }
+        return this.max;
+    }
+    /**
+     * Describe the histogram as JSON
+     * @return the count, mean, percentiles and largest value
+     */
+    public synchronized String toJson() {
+        return "{\"count\": " + this.count
+            + ", \"mean\": " + this.getMean()
+            + ", \"p50\": " + this.getPercentile(0.5)
+            + ", \"p90\": " + this.getPercentile(0.9)
+            + ", \"p99\": " + this.getPercentile(0.99)
+            + ", \"max\": " + this.max + "}";
+    }
+}
@@ -0,0 +1,114 @@
+package minesweeper;
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * LiveDisplay
+ * An interupter for the bot which copies the board each step and draws
+ * the newest copy on its own thread, at most a set number of times a second.
+ * Copies not drawn in time are dropped, so the bot never waits on the terminal
+ *
+ * @author Charlie Gregg
+ */
+public class LiveDisplay implements Consumer<Sweeper>, AutoCloseable {
+    private final AtomicReference<Sweeper> latest; // the newest copy not yet drawn
+    private final AtomicReference<Sweeper> spare; // a used copy to write the next step into
+    private final Sweeper view; // the board as last drawn, only used by the drawing thread
+    private final Renderer renderer; // draws the view
+    private final long frameNanos; // the shortest time between frames
+    private final Thread drawer; // the thread drawing frames
+    private volatile boolean closed; // true once no more steps will be published
+    private long published; // steps published, only written by the bot's thread
+    private volatile long drawn; // frames drawn, only written by the drawing thread
+
+    public LiveDisplay(Sweeper board, PrintStream out, int maxFps) {
+        this.latest = new AtomicReference<>();
+        this.spare = new AtomicReference<>();
+        this.view = new Sweeper(board);
+        this.renderer = new Renderer(this.view, out, true);
+        this.frameNanos = 1_000_000_000L / Math.max(maxFps, 1);
+        this.closed = false;
+        this.published = 0;
+        this.drawn = 0;
+        this.drawer = new Thread(this::draw, "minesweeper-display");
+        this.drawer.setDaemon(true);
+        this.drawer.start();
+    }
+    public LiveDisplay(Sweeper board) {
+        this(board, System.out, 30);
+    }
+    /**
+     * Publish the board as it is now, replacing any step not yet drawn
+     * @param board the board to show
+     */
+    @Override
+    public void accept(Sweeper board) {
+        Sweeper copy = this.spare.getAndSet(null);
+        if (copy == null) {
+            copy = new Sweeper(board);
+        } else {
+            board.copyInto(copy);
+        }
+        Sweeper dropped = this.latest.getAndSet(copy);
+        if (dropped != null) {
+            this.spare.set(dropped);
+        }
+        this.published++;
+        LockSupport.unpark(this.drawer);
+    }
+    /**
+     * Draw the newest step whenever one is waiting, no faster than the frame rate
+     */
+    private void draw() {
+        long next = System.nanoTime(); // the earliest time the next frame can be drawn
+        while (!this.closed || this.latest.get() != null) {
+            Sweeper copy = this.latest.getAndSet(null);
+            if (copy == null) {
+                LockSupport.park(this);
+                continue;
+            }
+            copy.copyInto(this.view);
+            this.spare.set(copy);
+            this.renderer.render();
+            this.drawn++;
+            next += this.frameNanos;
+            long wait = next - System.nanoTime();
+            if (wait <= 0) {
+                next = System.nanoTime(); // fell behind, don't draw a burst to catch up
+            }
+            while (wait > 0 && !this.closed) {
+                LockSupport.parkNanos(this, wait);
+                wait = next - System.nanoTime();
+            }
+        }
+    }
+    /**
+     * Stop publishing, waiting for the last step to be drawn
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        LockSupport.unpark(this.drawer);
+        try {
+            this.drawer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    /**
+     * Get the number of steps published
+     * @return the number of steps published
+     */
+    public long getPublished() {
+        return this.published;
+    }
+    /**
+     * Get the number of frames drawn
+     * @return the number of frames drawn
+     */
+    public long getDrawn() {
+        return this.drawn;
+    }
+}
@@ -1,7 +1,14 @@
 package minesweeper;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 
 /**
@@ -14,20 +21,66 @@ public class MineBot {
 
     public Sweeper board; // the board being played on
     private int state; // the current win state
-    private Set<Minefield> fields; // all known fields on the board
+    private final FieldIndex fields; // all known fields on the board
+    private final MineTally tally; // the mines left among the tiles not yet resolved
+    private ForkJoinPool pool; // reduces separate groups of fields at once, or null to reduce them in turn
+    private final int[] touching; // reusable buffer of indices touching an opened tile
+    private final BitSet packed; // reusable set of the tiles in separate fields, cleared before each use
+    private final Random rand; // picks guesses, seeded from the board so games can be repeated
+    private final FrontierSolver solver; // works out the safest tile when a guess is needed
+    private int moves; // the number of tiles the bot has chosen to open
+    private int guesses; // the number of those tiles that were guesses
+    private BotListener listener; // told what the bot is doing, or null if nobody is listening
+    private boolean guessing; // false to give up instead of guessing
 
     public MineBot(Sweeper board) {
+        this(board, new FrontierSolver());
+    }
+    /**
+     * @param board the board to play on
+     * @param solver works out the safest tile when a guess is needed, with its own size and time budget
+     */
+    public MineBot(Sweeper board, FrontierSolver solver) {
         this.board = board;
-        this.fields = new HashSet<>();
-        this.fields.add(new Minefield(this.board.getAllSpaces(), this.board.mineCount));
+        this.fields = board.isChunked() ? new FieldIndex() : new FieldIndex(board.width * board.height);
+        this.pool = null;
         this.state = 0;
+        this.touching = new int[Sweeper.MAX_SURROUNDING];
+        this.packed = new BitSet();
+        this.rand = new Random(board.seed);
+        this.solver = solver;
+        this.tally = new MineTally(board);
+        this.guessing = true;
+    }
+    /**
+     * Set the pool used to reduce separate groups of fields at the same time,
+     * the moves made are the same whichever pool is used
+     * @param pool the pool to use, or null to reduce groups one after another
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+    /**
+     * Set the listener told what the bot is doing as it plays
+     * Nothing is timed or counted for it while there is no listener
+     * @param listener the listener, or null to stop listening
+     */
+    public void setListener(BotListener listener) {
+        this.listener = listener;
     }
     /**
      * Make the bot open a space
      * @param space the space to open
      */
     private void open(MineTile space) {
-        Open response = this.board.tryOpen(space);
+        this.moves++;
+        long start = this.listener != null ? System.nanoTime() : 0;
+        Cascade response = this.board.cascade(space);
+        if (this.listener != null) {
+            long opened = System.nanoTime();
+            this.listener.phase(BotListener.Phase.OPEN, opened - start);
+            start = opened;
+        }
         if (response.tag() == Open.Tag.LOSE) {
             this.state = -1;
             return;
@@ -36,27 +89,84 @@ public class MineBot {
             this.state = 1;
             return;
         }
-        this.fields.add(new Minefield(this.board.getTouching(space), response.neighbours()));
+        // remove the opened tiles from every field covering them
+        Set<Minefield> covering = new LinkedHashSet<>();
+        for (int index : response.revealed()) {
+            covering.addAll(this.fields.getCovering(index));
+        }
+        for (Minefield field : covering) {
+            Minefield remaining = field.filtered(index -> !this.board.isOpen(index));
+            this.fields.remove(field);
+            this.fields.add(remaining);
+        }
+        for (int index : response.revealed()) {
+            int count = this.board.getTouching(index, this.touching);
+            int unknown = 0; // touching tiles not already known to be mines, kept in ascending order
+            for (int i = 0; i < count; i++) {
+                if (!this.tally.isMine(this.touching[i])) {
+                    this.touching[unknown++] = this.touching[i];
+                }
+            }
+            if (unknown == 0) {
+                continue;
+            }
+            int[] cells = Arrays.copyOf(this.touching, unknown);
+            this.fields.add(new Minefield(cells, this.board.getNeighbours(index) - (count - unknown), this.board.width));
+        }
+        if (this.listener != null) {
+            this.listener.phase(BotListener.Phase.FILTER, System.nanoTime() - start);
+        }
     }
     /**
      * Make the bot open the best space available
      */
     public void openBest() {
-        double best_chance = 1; // best chance of a mine so far
-        Minefield best_field = this.fields.iterator().next(); // best field so far
-        double chance; // the new chance
-        MineTile space; // the space to open
-        for (Minefield field : this.fields) {
-            chance = field.getChance();
-            if (chance < best_chance) {
-                best_chance = chance;
-                best_field = field;
-            }
-        }
-        space = new ArrayList<>(best_field.getSpaces()).get(
-            (int) Math.floor(Math.random()*best_field.getSpaces().size())
-        );
-        this.open(space);
+        long start = this.listener != null ? System.nanoTime() : 0;
+        Probabilities chances = this.solver.solve(this.board, this.rand); // chance of each tile being a mine
+        if (this.listener != null) {
+            this.listener.phase(BotListener.Phase.SOLVE, System.nanoTime() - start);
+        }
+        double bestChance = chances.outside() > 0 ? chances.outsideChance() : 2; // best chance of a mine so far
+        int best = -1; // best tile next to a number so far, -1 for a tile away from the numbers
+        for (int i = 0; i < chances.cells().length; i++) {
+            if (chances.chances()[i] < bestChance) {
+                bestChance = chances.chances()[i];
+                best = chances.cells()[i];
+            }
+        }
+        if (best == -1) {
+            int[] frontier = chances.cells().clone();
+            Arrays.sort(frontier);
+            if (this.board.isChunked()) {
+                // most of a chunked board is unopened, so keep drawing until a tile away from the numbers comes up
+                while (best == -1) {
+                    int index = this.rand.nextInt(this.board.width * this.board.height);
+                    if (!this.board.isOpen(index) && !this.board.isFlagged(index) && Arrays.binarySearch(frontier, index) < 0) {
+                        best = index;
+                    }
+                }
+            } else {
+                int skip = this.rand.nextInt(chances.outside()); // pick a random tile away from the numbers
+                for (int index = 0; best == -1; index++) {
+                    if (!this.board.isOpen(index) && Arrays.binarySearch(frontier, index) < 0 && skip-- == 0) {
+                        best = index;
+                    }
+                }
+            }
+        }
+        this.guesses++;
+        this.open(this.board.getTile(best));
+        if (this.listener != null) {
+            this.listener.opened(true, this.state != -1);
+        }
+    }
+    /**
+     * Open the first tile of a board whose mines were already planted for it, such as
+     * a board from a pool, so the bot's first move is the one the board expects
+     * @param first the tile the board was planted for
+     */
+    public void start(MineTile first) {
+        this.open(first);
     }
     /**
      * Run the bot until it wins or loses
@@ -68,6 +178,23 @@ public class MineBot {
             interupter.accept(this.board);
             this.expand();
         }
+        if (this.listener != null) {
+            this.listener.finished(this.state == 1);
+        }
+        return this.state == 1;
+    }
+    /**
+     * Play by logic alone, opening the first tile and then only tiles proved safe,
+     * giving up as if lost as soon as a guess would be needed
+     * @param first the first tile to open
+     * @return true if the board was cleared without guessing
+     */
+    public boolean solve(MineTile first) {
+        this.guessing = false;
+        this.open(first);
+        while (this.state == 0) {
+            this.expand();
+        }
         return this.state == 1;
     }
     /**
@@ -78,81 +205,174 @@ public class MineBot {
         if (this.state != 0) {
             return;
         }
-        // remove any field spaces that are over open tiles
-        Set<Minefield> newFields = new HashSet<>();
-        for (Minefield field : this.fields) {
-            field.filter(this.board::isOpen, true);
-            if (field.exists()) {
-                newFields.add(field);
-            }
-        }
-        this.fields = newFields;
-        // reduce the size and overlap of fields
-        Set<Minefield[]> queue = new HashSet<>();
-        ArrayList<Minefield> orderedFields = new ArrayList<>(this.fields);
-        for (int i = 0; i < orderedFields.size(); i++) {
-            for (int j = i+1; j < orderedFields.size(); j++) {
-                if (orderedFields.get(i).touches(orderedFields.get(j))) {
-                    queue.add(new Minefield[] {orderedFields.get(i), orderedFields.get(j)});
-                }
-            }
+        int changed = this.fields.getChangedCount();
+        this.reduce();
+        ArrayList<Minefield> settled = this.fields.takeSettled();
+        if (this.listener != null) {
+            this.listener.iteration(this.fields.getFields().size(), changed, settled.size());
         }
-        while (queue.size() > 0) {
-            Minefield[] pair = queue.iterator().next();
-            queue.remove(pair);
-            Minefield aField = pair[0];
-            Minefield bField = pair[1];
-            ArrayList<Minefield> result = Minefield.intersect(aField, bField);
-            if (result.size() > 0) {
-                result.removeIf(field -> (field.getSpaces().size() == 0));
-                this.fields.remove(aField);
-                this.fields.remove(bField);
-                queue.removeIf(testPair -> 
-                       testPair[0].equals(aField) 
-                    || testPair[0].equals(bField) 
-                    || testPair[1].equals(aField) 
-                    || testPair[1].equals(bField)
-                );
-                for (Minefield newField : result) {
-                    for (Minefield field : this.fields) {
-                        if (newField.touches(field)) {
-                            queue.add(new Minefield[] {newField, field});
+        // find possible opennings and open them
+        boolean found = false;
+        for (Minefield field : settled) {
+            if (field.empty()) {
+                for (int index : field.getCells()) {
+                    if (this.state == 0 && !this.board.isOpen(index)) {
+                        this.open(this.board.getTile(index));
+                        found = true;
+                        if (this.listener != null) {
+                            this.listener.opened(false, this.state != -1);
                         }
                     }
                 }
-
-                this.fields.addAll(result);
+            }
+            if (field.filled() && this.fields.getFields().contains(field)) {
+                this.resolveMines(field);
             }
         }
-        // find possible opennings and open them
-        boolean found = false;
-        for (Minefield field : new ArrayList<>(this.fields)) {
-            if (field.empty()) {
-                for (MineTile space : field.getSpaces()) {
-                    this.open(space);
-                    found = true;
+        if (this.state != 0) {
+            return;
+        }
+        // test if the board is solved
+        if (this.tally.isSolved()) {
+            this.state = 1;
+        } else if (!found && !this.openOutside()) {
+            if (this.guessing) {
+                this.openBest(); // if we don't know, guess
+            } else {
+                this.state = -1;
+            }
+        }
+    }
+    /**
+     * Flag the tiles of a field known to be all mines, count them as found,
+     * and take them out of every field covering them
+     * @param field the field of mines
+     */
+    private void resolveMines(Minefield field) {
+        int[] mines = field.getCells();
+        Set<Minefield> covering = new LinkedHashSet<>();
+        for (int index : mines) {
+            covering.addAll(this.fields.getCovering(index));
+            this.board.setFlag(this.board.getTile(index), true);
+            this.tally.addMine(index);
+        }
+        for (Minefield other : covering) {
+            Minefield remaining = other.filtered(index -> Arrays.binarySearch(mines, index) < 0);
+            int removed = other.size() - remaining.size(); // mines taken out of the field
+            this.fields.remove(other);
+            this.fields.add(new Minefield(remaining.getCells(), other.getMines() - removed, this.board.width));
+        }
+    }
+    /**
+     * Open every unresolved tile away from a set of separate fields which
+     * already hold all the mines left, as those tiles must be safe
+     * @return true if any tile was opened
+     */
+    private boolean openOutside() {
+        BitSet packed = this.packed; // tiles of the separate fields chosen
+        packed.clear();
+        int size = 0; // tiles in the separate fields chosen
+        int mines = 0; // mines in the separate fields chosen
+        for (Minefield field : this.fields.getFields()) {
+            boolean separate = true;
+            for (int index : field.getCells()) {
+                if (packed.get(index)) {
+                    separate = false;
+                    break;
                 }
             }
-            // add flags for show (not needed since bot doesn't look for them)
-            if (field.filled()) {
-                for (MineTile space : field.getSpaces()) {
-                    this.board.setFlag(space, true);
+            if (separate) {
+                for (int index : field.getCells()) {
+                    packed.set(index);
                 }
+                size += field.size();
+                mines += field.getMines();
             }
         }
-        // test if the board is solved
-        boolean solved = true;
-        for (Minefield field : new ArrayList<>(this.fields)) {
-            if (!field.filled()) {
-                solved = false;
-                break;
+        if (mines != this.tally.getMinesLeft() || size == this.tally.getUnresolved()) {
+            return false;
+        }
+        boolean found = false;
+        for (int index = 0; index < this.board.width * this.board.height && this.state == 0; index++) {
+            if (!this.board.isOpen(index) && !this.board.isFlagged(index) && !packed.get(index)) {
+                this.open(this.board.getTile(index));
+                found = true;
+                if (this.listener != null) {
+                    this.listener.opened(false, this.state != -1);
+                }
             }
         }
-        if (solved) {
-            this.state = 1;
-        } else if (!found) {
-            this.openBest(); // if we don't know, guess
+        return found;
+    }
+    /**
+     * Reduce the size and overlap of changed fields with the fields they touch
+     * Groups of fields that share no tiles are reduced separately, on the pool if there is one,
+     * and merged back in order so the result doesn't depend on the pool
+     */
+    private void reduce() {
+        long start = this.listener != null ? System.nanoTime() : 0;
+        ArrayList<ArrayList<Minefield>> components = this.fields.getChangedComponents();
+        if (components.size() <= 1) {
+            if (this.listener != null) {
+                long reducing = System.nanoTime();
+                this.listener.phase(BotListener.Phase.PAIRS, reducing - start);
+                long intersections = this.fields.getIntersections();
+                long reductions = this.fields.getReductions();
+                this.fields.reduce();
+                this.listener.phase(BotListener.Phase.REDUCE, System.nanoTime() - reducing);
+                this.listener.intersected(this.fields.getIntersections() - intersections, this.fields.getReductions() - reductions);
+            } else {
+                this.fields.reduce();
+            }
+            return;
+        }
+        ArrayList<FieldIndex> groups = new ArrayList<>();
+        for (ArrayList<Minefield> component : components) {
+            FieldIndex group = new FieldIndex();
+            for (Minefield field : component) {
+                group.add(field, this.fields.isChanged(field));
+            }
+            groups.add(group);
+        }
+        long reducing = this.listener != null ? System.nanoTime() : 0;
+        if (this.pool != null) {
+            this.pool.submit(() -> groups.parallelStream().forEach(FieldIndex::reduce)).join();
+        } else {
+            groups.forEach(FieldIndex::reduce);
+        }
+        if (this.listener != null) {
+            this.listener.phase(BotListener.Phase.PAIRS, reducing - start);
+            this.listener.phase(BotListener.Phase.REDUCE, System.nanoTime() - reducing);
+            long intersections = 0;
+            long reductions = 0;
+            for (FieldIndex group : groups) {
+                intersections += group.getIntersections();
+                reductions += group.getReductions();
+            }
+            this.listener.intersected(intersections, reductions);
         }
+        for (int i = 0; i < groups.size(); i++) {
+            for (Minefield field : components.get(i)) {
+                this.fields.remove(field);
+            }
+            for (Minefield field : groups.get(i).getFields()) {
+                this.fields.add(field, false);
+            }
+        }
+    }
+    /**
+     * Get the number of tiles the bot has chosen to open
+     * @return the number of moves made
+     */
+    public int getMoves() {
+        return this.moves;
+    }
+    /**
+     * Get the number of moves that were guesses
+     * @return the number of guesses made
+     */
+    public int getGuesses() {
+        return this.guesses;
     }
     /**
      * Gets all spaces in at least min fields
@@ -160,18 +380,19 @@ public class MineBot {
      * @return the spaces in at least min fields
      */
     public Set<MineTile> getHighlights(int min) {
-        int[][] counts = new int[this.board.width][this.board.height];
-        for (Minefield field : this.fields) {
-            for (MineTile space : field.getSpaces()) {
-                counts[space.x()][space.y()]++;
+        if (min <= 0) {
+            return this.board.getAllSpaces();
+        }
+        Map<Integer, Integer> counts = new HashMap<>(); // fields covering each tile in any field
+        for (Minefield field : this.fields.getFields()) {
+            for (int index : field.getCells()) {
+                counts.merge(index, 1, Integer::sum);
             }
         }
         Set<MineTile> tiles = new HashSet<>();
-        for (int x = 0; x < this.board.width; x++) {
-            for (int y = 0; y < this.board.height; y++) {
-                if (counts[x][y] >= min) {
-                    tiles.add(new MineTile(x, y));
-                }
+        for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+            if (count.getValue() >= min) {
+                tiles.add(this.board.getTile(count.getKey()));
             }
         }
         return tiles;
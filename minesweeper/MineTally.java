@@ -0,0 +1,71 @@
+package minesweeper;
+import java.util.BitSet;
+
+/**
+ * MineTally
+ * The one fact that covers the whole board: the mines not yet found are
+ * somewhere among the tiles not yet resolved. A tile is resolved once it is
+ * opened or known to be a mine, and both counts are kept up to date in
+ * constant time instead of holding a field over every tile. The known mines
+ * are kept as bits that only grow as far as the highest one found. Flags on
+ * the board aren't trusted, only mines recorded here are known
+ *
+ * @author Charlie Gregg
+ */
+public class MineTally {
+    private final Sweeper board; // the board being counted
+    private final BitSet mines; // bit set for each tile known to be a mine, by index
+    private int known; // the number of tiles known to be mines
+
+    public MineTally(Sweeper board) {
+        this.board = board;
+        this.mines = new BitSet(); // grows with the mines found, so a chunked board's tally follows what was explored
+        this.known = 0;
+    }
+    /**
+     * Record that a tile is known to be a mine
+     * @param index the index of the tile
+     */
+    public void addMine(int index) {
+        if (!this.mines.get(index)) {
+            this.mines.set(index);
+            this.known++;
+        }
+    }
+    /**
+     * Check if a tile is known to be a mine
+     * @param index the index of the tile
+     * @return true if it has been recorded as a mine
+     */
+    public boolean isMine(int index) {
+        return this.mines.get(index);
+    }
+    /**
+     * Get the number of tiles known to be mines
+     * @return the number of known mines
+     */
+    public int getKnownMines() {
+        return this.known;
+    }
+    /**
+     * Get the number of mines not yet known
+     * @return the mines left to find
+     */
+    public int getMinesLeft() {
+        return this.board.mineCount - this.getKnownMines();
+    }
+    /**
+     * Get the number of tiles neither opened nor known to be mines
+     * @return the unresolved tiles
+     */
+    public int getUnresolved() {
+        return this.board.getRemainingSpaces() - this.getKnownMines();
+    }
+    /**
+     * Check if every unresolved tile must be a mine, which means the board is solved
+     * @return true if there are no safe tiles left
+     */
+    public boolean isSolved() {
+        return this.getUnresolved() == this.getMinesLeft();
+    }
+}
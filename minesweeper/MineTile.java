@@ -1,20 +1,64 @@
 package minesweeper;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
 /**
  * MineTile
  * A tile position on the board
- * 
+ *
  * @author Charlie Gregg
- * 
+ *
  * @param x the x position of this tile
  * @param y the y position of this tile
  */
 public record MineTile(int x, int y) {
     public int x() {
-        return this.x; 
+        return this.x;
     }
     public int y() {
         return this.y;
     }
+    /**
+     * Pack a position into a long, with y in the high half and x in the low half,
+     * so positions can be kept and compared without making tiles
+     * @param x the x position
+     * @param y the y position
+     * @return the packed position
+     */
+    public static long encode(int x, int y) {
+        return ((long) y << 32) | (x & 0xFFFFFFFFL);
+    }
+    /**
+     * Get the x position of a packed position
+     * @param packed the packed position
+     * @return the x position
+     */
+    public static int decodeX(long packed) {
+        return (int) packed;
+    }
+    /**
+     * Get the y position of a packed position
+     * @param packed the packed position
+     * @return the y position
+     */
+    public static int decodeY(long packed) {
+        return (int) (packed >> 32);
+    }
+    /**
+     * Get the tile at a packed position
+     * @param packed the packed position
+     * @return the tile
+     */
+    public static MineTile decode(long packed) {
+        return new MineTile(MineTile.decodeX(packed), MineTile.decodeY(packed));
+    }
+    /**
+     * Pack this tile's position into a long
+     * @return the packed position
+     */
+    public long encode() {
+        return MineTile.encode(this.x, this.y);
+    }
 
     @Override
     public String toString() {
@@ -23,4 +67,69 @@ public record MineTile(int x, int y) {
     public String toCode() {
         return "new MineTile(" + this.x + ", " + this.y + ")";
     }
-}
\ No newline at end of file
+}
+/**
+ * TileTable
+ * The canonical tiles of one board size, made the first time each is asked for
+ * and shared by every board of that size, so boards hand out the same tile
+ * for a position instead of making a new one each time. Only the most recently
+ * used sizes are kept, up to MAX_TILES tiles between them, and a board holds on
+ * to its own table after it is dropped
+ *
+ * @author Charlie Gregg
+ */
+final class TileTable {
+    private final static int MAX_TILES = 1 << 22; // the largest board given a table, and the most tiles kept in tables at once
+    private final static LinkedHashMap<Long, TileTable> TABLES = new LinkedHashMap<>(16, 0.75f, true); // tables by packed size, least recently used first
+    private static long cached = 0; // the tiles of every table kept, guarded by TABLES
+
+    private final int width; // the width of the boards sharing the table
+    private final MineTile[] tiles; // the tile at each index, or null until it is first asked for
+
+    private TileTable(int width, int height) {
+        this.width = width;
+        this.tiles = new MineTile[width * height];
+    }
+    /**
+     * Get the table shared by boards of a size
+     * @param width the width of the board
+     * @param height the height of the board
+     * @return the table, or null if the board is too big to keep a table for
+     */
+    static TileTable forSize(int width, int height) {
+        if ((long) width * height > MAX_TILES) {
+            return null;
+        }
+        synchronized (TABLES) {
+            long size = MineTile.encode(width, height);
+            TileTable table = TABLES.get(size);
+            if (table != null) {
+                return table;
+            }
+            table = new TileTable(width, height);
+            TABLES.put(size, table);
+            cached += table.tiles.length;
+            // drop the least recently used tables until the new one fits, it is at the end so is never dropped
+            Iterator<TileTable> eldest = TABLES.values().iterator();
+            while (cached > MAX_TILES) {
+                cached -= eldest.next().tiles.length;
+                eldest.remove();
+            }
+            return table;
+        }
+    }
+    /**
+     * Get the canonical tile at an index. Two threads may both make a missing tile,
+     * which is harmless as tiles are immutable and equal
+     * @param index the index of the tile, y*width+x
+     * @return the tile
+     */
+    MineTile get(int index) {
+        MineTile tile = this.tiles[index];
+        if (tile == null) {
+            tile = new MineTile(index % this.width, index / this.width);
+            this.tiles[index] = tile;
+        }
+        return tile;
+    }
+}
@@ -1,29 +1,67 @@
 package minesweeper;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.function.IntPredicate;
 
 /**
  * Minefield
  * A set of tiles that are known to contain mines
- * 
+ *
  * @author Charlie Gregg
  */
 public class Minefield {
-    private Set<MineTile> spaces; // set of tiles included
+    private int[] cells; // sorted board indices of the tiles included
     private int mines; // number of mines in these tiles
+    private final int width; // width of the board the indices belong to
+    private int hash; // cached hash code, 0 if not yet computed
 
-    public Minefield(Set<MineTile> spaces, int mines) {
-        this.spaces = spaces;
+    public final static int DEFAULT_WIDTH = 1 << 16; // the width given to fields made without one, so they can be combined with each other
+
+    public Minefield(int[] cells, int mines, int width) {
+        this.cells = cells;
         this.mines = mines;
+        this.width = width;
+        this.hash = 0;
+    }
+    public Minefield(Set<MineTile> spaces, int mines, int width) {
+        this(Minefield.toCells(spaces, width), mines, width);
+    }
+    /**
+     * Make a field without knowing the board's width. Every field made this way uses
+     * DEFAULT_WIDTH, so they can be combined with each other but not with fields
+     * made for a board, and no tile may be further right than DEFAULT_WIDTH
+     * @param spaces the tiles of the field
+     * @param mines the number of mines in the tiles
+     */
+    public Minefield(Set<MineTile> spaces, int mines) {
+        this(spaces, mines, Minefield.DEFAULT_WIDTH);
+    }
+    /**
+     * Convert tiles to sorted board indices
+     * @param spaces the tiles to convert
+     * @param width the width of the board
+     * @return the sorted indices of the tiles
+     */
+    private static int[] toCells(Set<MineTile> spaces, int width) {
+        int[] cells = new int[spaces.size()];
+        int i = 0;
+        for (MineTile space : spaces) {
+            cells[i++] = space.y() * width + space.x();
+        }
+        Arrays.sort(cells);
+        return cells;
     }
     /**
      * Check if this field is filled
      * @return true if this field is filled
      */
     public boolean filled() {
-        return this.spaces.size() == this.mines;
+        return this.cells.length == this.mines;
     }
     /**
      * Check if this field is empty
@@ -37,21 +75,49 @@ public class Minefield {
      * @return true if this field exists
      */
     public boolean exists() {
-        return this.spaces.size() > 0;
+        return this.cells.length > 0;
     }
     /**
      * Get the spaces in this field
-     * @return the spaces in this field
+     * @return a read only view of the spaces in this field
      */
     public Set<MineTile> getSpaces() {
-        return this.spaces;
+        return new Spaces();
+    }
+    /**
+     * Get the board indices of the tiles in this field, must not be modified
+     * @return the sorted indices of the tiles in this field
+     */
+    public int[] getCells() {
+        return this.cells;
+    }
+    /**
+     * Get the number of tiles in this field
+     * @return the number of tiles in this field
+     */
+    public int size() {
+        return this.cells.length;
+    }
+    /**
+     * Get the number of mines in this field
+     * @return the number of mines in this field
+     */
+    public int getMines() {
+        return this.mines;
+    }
+    /**
+     * Get the width of the board the indices of this field belong to
+     * @return the width of the board
+     */
+    public int getWidth() {
+        return this.width;
     }
     /**
      * The naïve chance of each cell being a mine
      * @return the chance of a mine
      */
     public double getChance() {
-        return (double) this.mines/this.spaces.size();
+        return (double) this.mines/this.cells.length;
     }
     /**
      * Infer any reductions that can be made to a field
@@ -61,40 +127,69 @@ public class Minefield {
      * @return the inferred fields, or none if no inference can be made
      */
     public static ArrayList<Minefield> intersect(Minefield aField, Minefield bField) {
-        Set<MineTile> cSpaces = new HashSet<>(aField.spaces);
-        cSpaces.retainAll(bField.spaces);
-        int cSize = cSpaces.size();
-        int aSize = aField.spaces.size();
-        int bSize = bField.spaces.size();
+        int cSize = Minefield.overlap(aField.cells, bField.cells);
+        int aSize = aField.cells.length;
+        int bSize = bField.cells.length;
 
         int cMinesMin = cSize - Math.min(aSize - aField.mines, bSize - bField.mines);
         int cMinesMax = Math.min(Math.min(aField.mines, bField.mines), cSize);
         if (cMinesMin == cMinesMax && cSize > 0) {
-            Set<MineTile> aSpaces = new HashSet<>(aField.spaces);
-            aSpaces.removeAll(cSpaces);
-            Set<MineTile> bSpaces = new HashSet<>(bField.spaces);
-            bSpaces.removeAll(cSpaces);
+            int[] aCells = new int[aSize - cSize];
+            int[] cCells = new int[cSize];
+            int[] bCells = new int[bSize - cSize];
+            int a = 0, b = 0, c = 0;
+            while (a < aSize || b < bSize) {
+                if (b == bSize || (a < aSize && aField.cells[a] < bField.cells[b])) {
+                    aCells[a - c] = aField.cells[a++];
+                } else if (a == aSize || bField.cells[b] < aField.cells[a]) {
+                    bCells[b - c] = bField.cells[b++];
+                } else {
+                    cCells[c++] = aField.cells[a++];
+                    b++;
+                }
+            }
             ArrayList<Minefield> fields = new ArrayList<>();
-            fields.add(new Minefield(aSpaces, aField.mines - cMinesMin));
-            fields.add(new Minefield(cSpaces, cMinesMin));
-            fields.add(new Minefield(bSpaces, bField.mines - cMinesMin));
+            fields.add(new Minefield(aCells, aField.mines - cMinesMin, aField.width));
+            fields.add(new Minefield(cCells, cMinesMin, aField.width));
+            fields.add(new Minefield(bCells, bField.mines - cMinesMin, aField.width));
             return fields;
         }
         return new ArrayList<>();
     }
+    /**
+     * Count the indices two sorted arrays have in common
+     * @param aCells the first sorted array
+     * @param bCells the second sorted array
+     * @return the number of shared indices
+     */
+    private static int overlap(int[] aCells, int[] bCells) {
+        if (aCells.length == 0 || bCells.length == 0
+            || aCells[aCells.length - 1] < bCells[0] || bCells[bCells.length - 1] < aCells[0]) {
+            return 0;
+        }
+        int count = 0;
+        int a = 0, b = 0;
+        while (a < aCells.length && b < bCells.length) {
+            if (aCells[a] < bCells[b]) {
+                a++;
+            } else if (bCells[b] < aCells[a]) {
+                b++;
+            } else {
+                count++;
+                a++;
+                b++;
+            }
+        }
+        return count;
+    }
     /**
      * Filter the spaces in this field
      * @param decider the function to decide whether to keep a space
      * @param invert whether to invert the decider
      */
     public void filter(Function<MineTile, Boolean> decider, boolean invert) {
-        Set<MineTile> newSpaces = new HashSet<>();
-        for (MineTile space : this.spaces) {
-            if (decider.apply(space) ^ invert) {
-                newSpaces.add(space);
-            }
-        }
-        this.spaces = newSpaces;
+        this.cells = this.filtered(index -> decider.apply(this.toTile(index)) ^ invert).cells;
+        this.hash = 0;
     }
     /**
      * Filter the spaces in this field
@@ -103,35 +198,65 @@ public class Minefield {
     public void filter(Function<MineTile, Boolean> decider) {
         this.filter(decider, false);
     }
+    /**
+     * Make a copy of this field with only some of its tiles
+     * @param keep decides whether to keep the tile at a board index
+     * @return the new field, with the same number of mines
+     */
+    public Minefield filtered(IntPredicate keep) {
+        int[] kept = new int[this.cells.length];
+        int count = 0;
+        for (int index : this.cells) {
+            if (keep.test(index)) {
+                kept[count++] = index;
+            }
+        }
+        return new Minefield(count == kept.length ? kept : Arrays.copyOf(kept, count), this.mines, this.width);
+    }
     /**
      * Check if this field touches another
      * @param o the other field
      * @return true if this field touches the other
      */
     public boolean touches(Minefield o) {
-        return new HashSet<>(this.spaces).removeAll(o.spaces);
+        if (!this.exists() || !o.exists()
+            || this.cells[this.cells.length - 1] < o.cells[0] || o.cells[o.cells.length - 1] < this.cells[0]) {
+            return false;
+        }
+        int a = 0, b = 0;
+        while (a < this.cells.length && b < o.cells.length) {
+            if (this.cells[a] < o.cells[b]) {
+                a++;
+            } else if (o.cells[b] < this.cells[a]) {
+                b++;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+    /**
+     * Convert a board index of this field to a tile
+     * @param index the board index
+     * @return the tile at that index
+     */
+    private MineTile toTile(int index) {
+        return new MineTile(index % this.width, index / this.width);
     }
     @Override
     public String toString() {
-        return "Minefield(" + this.spaces + "-> "+this.spaces.size()+", " + this.mines + " mines, " + this.getChance() + " chance)";
+        return "Minefield(" + this.getSpaces() + "-> "+this.cells.length+", " + this.mines + " mines, " + this.getChance() + " chance)";
     }
     public String toCode() {
-        String spacesString = "";
-        for (MineTile space : this.spaces) {
-            spacesString += ",";
-            spacesString += space.toCode();
-        }
-        spacesString = spacesString.length() == 0 ? "  " : spacesString;
-        return "new Minefield(new HashSet<MineTile>(Arrays.asList(" + spacesString.substring(1) + ")), " + this.mines + ")";
+        String cellsString = Arrays.toString(this.cells);
+        return "new Minefield(new int[] {" + cellsString.substring(1, cellsString.length() - 1) + "}, " + this.mines + ", " + this.width + ")";
     }
     @Override
     public int hashCode() {
-        int tileHash = 0;
-        for (MineTile space : this.spaces) {
-            tileHash ^= space.hashCode();
-            tileHash = Integer.rotateLeft(tileHash, 7);
+        if (this.hash == 0) {
+            this.hash = Arrays.hashCode(this.cells) * 31 + this.mines;
         }
-        return tileHash ^ mines;
+        return this.hash;
     }
 
     @Override
@@ -143,6 +268,47 @@ public class Minefield {
             return false;
         }
         Minefield other_field = (Minefield) other;
-        return this.spaces.equals(other_field.spaces) && other_field.mines == this.mines;
+        return other_field.mines == this.mines && this.hashCode() == other_field.hashCode()
+            && Arrays.equals(this.cells, other_field.cells);
+    }
+
+    /**
+     * Spaces
+     * A read only view of the cells of a field as tiles
+     */
+    private class Spaces extends AbstractSet<MineTile> {
+        @Override
+        public int size() {
+            return Minefield.this.cells.length;
+        }
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof MineTile)) {
+                return false;
+            }
+            MineTile space = (MineTile) o;
+            if (space.x() < 0 || space.x() >= Minefield.this.width) {
+                return false;
+            }
+            return Arrays.binarySearch(Minefield.this.cells, space.y() * Minefield.this.width + space.x()) >= 0;
+        }
+        @Override
+        public Iterator<MineTile> iterator() {
+            return new Iterator<MineTile>() {
+                private int next = 0; // position of the next cell to return
+
+                @Override
+                public boolean hasNext() {
+                    return this.next < Minefield.this.cells.length;
+                }
+                @Override
+                public MineTile next() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return Minefield.this.toTile(Minefield.this.cells[this.next++]);
+                }
+            };
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,4 +1,6 @@
 package minesweeper;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Set;
@@ -17,11 +19,8 @@ public class Minesweeper {
     public static final String BLUE_BG_ANSI = "\u001B[44m";
     public static final String RESET_ANSI = "\u001B[0m";
 
-    public static int winState = 0; // 0 none, 1 win, -1 lose
-
-    public static int width; // the width of the board to play on
-    public static int height; // the height of the board to play on
-    public static double mineChance; // the chance of a mine being on each tile
+    private static Renderer renderer; // draws the board last displayed, reused between frames
+    private static GameWriter record; // where games are recorded, or null if they are not
 
     public enum Difficulty {
         EASY(1,     15, 15, 0.07),
@@ -47,32 +46,20 @@ public class Minesweeper {
      * Open a space on the board
      * @param board the board to open on
      * @param space the space to open
+     * @return the win state after opening, 0 none, 1 win, -1 lose
      */
-    public static void open(Sweeper board, MineTile space) {
-        Set<MineTile> queue = new HashSet<>(); // queue of spaces to open
-        MineTile tile; // the next tile to open
-        Open response; // the response from opening the tile
-        
-        queue.add(space);
-        while (queue.size() > 0) {
-            tile = queue.iterator().next();
-            queue.remove(tile);
-            response = board.tryOpen(tile);
-            if (response.tag() == Open.Tag.LOSE) {
-                winState = -1;
-                break;
-            }
-            if (response.tag() == Open.Tag.WIN) {
-                winState = 1;
-                break;
-            }
-            if (response.tag() == Open.Tag.FLAG) {
-                System.out.println("That cell is flagged");
-            }
-            if (response.neighbours() == 0) {
-                queue.addAll(board.getTouching(tile));
-            }
+    public static int open(Sweeper board, MineTile space) {
+        Cascade response = board.cascade(space); // the response from opening the tile
+        if (response.tag() == Open.Tag.LOSE) {
+            return -1;
+        }
+        if (response.tag() == Open.Tag.WIN) {
+            return 1;
         }
+        if (response.tag() == Open.Tag.FLAG) {
+            System.out.println("That cell is flagged");
+        }
+        return 0;
     }
     /**
      * Toggle a flag on a space
@@ -89,28 +76,10 @@ public class Minesweeper {
      * @param colour the colour to highlight with
      */
     public static void display(Sweeper board, Set<MineTile> highlightedSpaces, String colour) {
-        String gridDisplay = "X "; // the string to display
-        MineTile space; // the current space being displayed
-        String tile; // the string to display for the current space
-        
-        for (int x = 0; x < board.width; x++) {
-            gridDisplay += Integer.toHexString(x) + (x < 16 ? " " : "");
+        if (renderer == null || renderer.getBoard() != board) {
+            renderer = new Renderer(board);
         }
-        for (int y = 0; y < board.height; y++) {
-            gridDisplay += "\n";
-            gridDisplay += Integer.toHexString(y) + (y < 16 ? " " : "") + RED_ANSI + WHITE_BG_ANSI;
-            for (int x = 0; x < board.width; x++) {
-                space = new MineTile(x, y);
-                tile = board.getDisplay(space) + " ";
-                if (highlightedSpaces.contains(space)) {
-                    tile = colour + tile + Minesweeper.WHITE_BG_ANSI;
-                }
-                gridDisplay += tile;
-            }
-            gridDisplay += RESET_ANSI;
-        }
-        gridDisplay += "\n";
-        System.out.println(gridDisplay);
+        renderer.render(highlightedSpaces, colour);
     }
     /**
      * Display the board
@@ -122,18 +91,58 @@ public class Minesweeper {
     /**
      * Let the user play the game
      * @param in the scanner to read input from
+     * @param difficulty the difficulty to play at
+     */
+    public static void player(Scanner in, Difficulty difficulty) {
+        player(in, difficulty, Sweeper.Planting.SAMPLED);
+    }
+    /**
+     * Let the player play the game
+     * @param in the input scanner
+     * @param difficulty the difficulty to play at
+     * @param planting how mines are placed on the first opening
+     */
+    public static void player(Scanner in, Difficulty difficulty, Sweeper.Planting planting) {
+        Sweeper ms = new Sweeper(difficulty.mineChance, difficulty.width, difficulty.height); // board
+        ms.setPlanting(planting);
+        ms.setRecord(record);
+        play(in, ms, 0);
+    }
+    /**
+     * Let the player play a board taken from a pool. Its mines were planted for the
+     * pool's first tile, so that tile is opened for the player before their first move
+     * @param in the input scanner
+     * @param pool the pool to take the board from
      */
-    public static void player(Scanner in) {
-        Sweeper ms = new Sweeper(mineChance, width, height); // board
+    public static void player(Scanner in, BoardPool pool) {
+        Sweeper ms = pool.take(); // board
+        ms.setRecord(record);
+        play(in, ms, open(ms, pool.getFirst()));
+    }
+    /**
+     * Read and make the player's moves until the game is won or lost
+     * @param in the input scanner
+     * @param ms the board to play on
+     * @param winState the win state to start from, 0 none, 1 win, -1 lose
+     */
+    private static void play(Scanner in, Sweeper ms, int winState) {
         String move; // the move to make
         MineTile space; // the space to move to
         boolean flag; // whether to flag the space
+        boolean warned = false; // true once the board's layout has been checked for needing a guess
         String[] coords; // the coordinates of the space
         
         display(ms);
         // display a help message at the beginning
         System.out.println("Make moves using decimal coordinates, follow with an 'f' to flag");
         while (winState == 0) {
+            Generation layout = ms.getGeneration(); // only there once the mines are planted without guesses
+            if (!warned && layout != null) {
+                warned = true;
+                if (!layout.solvable()) {
+                    System.out.println("No board without guessing was found in " + layout.attempts() + " tries, this one may need a guess");
+                }
+            }
             do {
                 System.out.print("Move (x,yf?): ");
                 move = in.nextLine().toLowerCase();
@@ -147,7 +156,7 @@ public class Minesweeper {
             if (flag) {
                 toggleFlag(ms, space);
             } else {
-                open(ms, space);
+                winState = open(ms, space);
             }
             display(ms);
         }
@@ -155,34 +164,58 @@ public class Minesweeper {
     }
     /**
      * Let the AI play the game
+     * @param difficulty the difficulty to play at
      */
-    public static void ai() {
-        Sweeper ms = new Sweeper(mineChance, width, height); // board
+    public static void ai(Difficulty difficulty) {
+        Sweeper ms = new Sweeper(difficulty.mineChance, difficulty.width, difficulty.height); // board
+        ms.setRecord(record);
+        watch(new MineBot(ms));
+    }
+    /**
+     * Let the AI play a board taken from a pool, opening the tile its mines were planted for first
+     * @param pool the pool to take the board from
+     */
+    public static void ai(BoardPool pool) {
+        Sweeper ms = pool.take(); // board
+        ms.setRecord(record);
         MineBot bot = new MineBot(ms); // the bot
-        boolean won = bot.run(Minesweeper::display); // run the bot
-        
-        display(ms);
+        bot.start(pool.getFirst());
+        watch(bot);
+    }
+    /**
+     * Show the AI playing until it wins or loses
+     * @param bot the bot to run
+     */
+    private static void watch(MineBot bot) {
+        boolean won; // true if the bot won
+        try (LiveDisplay live = new LiveDisplay(bot.board)) { // draws the bot's steps without holding it up
+            won = bot.run(live); // run the bot
+            live.accept(bot.board);
+        }
         System.out.println(won ? "The AI won!" : "The AI lost!");
     }
     /**
-     * Set the difficulty of the game
-     * @param difficulty the difficulty to set to (1-5)
+     * Get the difficulty of the game
+     * @param difficulty the difficulty number (1-5)
+     * @return the difficulty with that number
      */
-    public static void setDifficulty(int difficulty) {
-        width = Difficulty.values()[difficulty - 1].width;
-        height = Difficulty.values()[difficulty - 1].height;
-        mineChance = Difficulty.values()[difficulty - 1].mineChance;
+    public static Difficulty getDifficulty(int difficulty) {
+        return Difficulty.values()[difficulty - 1];
     }
 
-    public static void main(String args[]) {
+    /**
+     * Play from the command line
+     * Arguments: optional file to record games to
+     */
+    public static void main(String args[]) throws IOException {
         Scanner in = new Scanner(System.in);
-        String mode; // "p" or "a"
+        String mode; // "p", "n" or "a"
         int difficulty; // 1-5
 
         do {
-            System.out.print("Play or AI (p/a): ");
+            System.out.print("Play, play without guessing or AI (p/n/a): ");
             mode = in.nextLine().toLowerCase();
-        } while (!mode.equals("p") && !mode.equals("a"));
+        } while (!mode.equals("p") && !mode.equals("n") && !mode.equals("a"));
         do {
             try {
                 System.out.print("Difficulty (1-5): ");
@@ -192,11 +225,19 @@ public class Minesweeper {
                 System.out.println("Invalid difficulty");
             }
         } while (difficulty < 1 || difficulty > 5);
-        setDifficulty(difficulty);
-        if (mode.equals("p")) {
-            player(in);
-        } else {
-            ai();
+        // no guess and AI games take a board planted in the background, as no guess planting can be slow,
+        // but a normal game plants for whichever tile the player opens first
+        Sweeper.Planting planting = mode.equals("n") ? Sweeper.Planting.NO_GUESS : Sweeper.Planting.SAMPLED;
+        try (BoardPool pool = mode.equals("p") ? null : new BoardPool(getDifficulty(difficulty), planting, 1);
+             GameWriter writer = args.length > 0 ? new GameWriter(Path.of(args[0])) : null) {
+            record = writer;
+            if (mode.equals("p")) {
+                player(in, getDifficulty(difficulty));
+            } else if (mode.equals("n")) {
+                player(in, pool);
+            } else {
+                ai(pool);
+            }
         }
     }
 }
@@ -0,0 +1,99 @@
+package minesweeper;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * NoGuessGenerator
+ * Finds mine layouts that can be cleared by logic alone from the first opening.
+ * Candidate layouts are drawn from seeds derived from the board's seed, and each is
+ * checked by letting the bot play it without ever guessing. Candidates are checked
+ * in batches across the pool, and the lowest numbered candidate that passes is chosen,
+ * so the layout only depends on the seed and first opening, not on the threads used
+ *
+ * @author Charlie Gregg
+ */
+public class NoGuessGenerator {
+    public final static NoGuessGenerator DEFAULT = new NoGuessGenerator(1000, 10000, null); // used unless a board is given another
+    private final static long SEED_STEP = 0x9E3779B97F4A7C15L; // spreads the seeds of successive candidates
+
+    private final int maxAttempts; // the most candidate layouts to check
+    private final long timeLimitNanos; // the most time to spend checking
+    private final ForkJoinPool pool; // checks candidates, or null to use the common pool
+
+    /**
+     * @param maxAttempts the most candidate layouts to check
+     * @param timeLimitMillis the most time to spend checking, in milliseconds
+     * @param pool the pool to check candidates on, or null to use the common pool
+     */
+    public NoGuessGenerator(int maxAttempts, long timeLimitMillis, ForkJoinPool pool) {
+        this.maxAttempts = maxAttempts;
+        this.timeLimitNanos = timeLimitMillis * 1_000_000;
+        this.pool = pool;
+    }
+    /**
+     * Find the first candidate layout that can be cleared without guessing.
+     * If the budget runs out first, the board's own seed is given back, which is the
+     * ordinary layout. Only the time limit can make the result differ between runs
+     * @param mineChance the chance of a mine being on each tile
+     * @param width the width of the board
+     * @param height the height of the board
+     * @param seed the seed of the board
+     * @param first the first tile opened
+     * @return the seed of the layout chosen and how it was found
+     */
+    public Generation generate(double mineChance, int width, int height, long seed, MineTile first) {
+        ForkJoinPool pool = this.pool != null ? this.pool : ForkJoinPool.commonPool();
+        int batch = Math.max(pool.getParallelism(), 1) * 2; // candidates checked together
+        long deadline = System.nanoTime() + this.timeLimitNanos;
+        int attempts = 0;
+        while (attempts < this.maxAttempts && System.nanoTime() < deadline) {
+            int start = attempts;
+            int end = Math.min(start + batch, this.maxAttempts);
+            AtomicInteger best = new AtomicInteger(end); // lowest candidate passing so far, end if none
+            pool.submit(() -> IntStream.range(start, end).parallel().forEach(attempt -> {
+                if (attempt < best.get() && System.nanoTime() < deadline
+                    && NoGuessGenerator.isSolvable(mineChance, width, height, NoGuessGenerator.candidateSeed(seed, attempt), first)) {
+                    best.accumulateAndGet(attempt, Math::min);
+                }
+            })).join();
+            if (best.get() < end) {
+                return new Generation(NoGuessGenerator.candidateSeed(seed, best.get()), best.get() + 1, true);
+            }
+            attempts = end;
+        }
+        return new Generation(seed, attempts, false);
+    }
+    /**
+     * Get the seed of a candidate layout, the first candidate being the ordinary layout
+     * @param seed the seed of the board
+     * @param attempt the number of the candidate
+     * @return the seed to place its mines from
+     */
+    public static long candidateSeed(long seed, int attempt) {
+        return seed + attempt * SEED_STEP;
+    }
+    /**
+     * Check if a layout can be cleared from the first opening without guessing
+     * @param mineChance the chance of a mine being on each tile
+     * @param width the width of the board
+     * @param height the height of the board
+     * @param seed the seed of the layout
+     * @param first the first tile opened
+     * @return true if the bot clears it by logic alone
+     */
+    public static boolean isSolvable(double mineChance, int width, int height, long seed, MineTile first) {
+        Sweeper board = new Sweeper(mineChance, width, height, seed);
+        board.setPlanting(Sweeper.Planting.SHUFFLED_OPENING);
+        return new MineBot(board).solve(first);
+    }
+}
+/**
+ * Generation
+ * The layout chosen by a no-guess generator
+ *
+ * @param seed the seed the mines are placed from
+ * @param attempts the number of candidates checked
+ * @param solvable true if the layout can be cleared without guessing, false if the budget ran out
+ */
+record Generation(long seed, int attempts, boolean solvable) {}
@@ -0,0 +1,164 @@
+package minesweeper;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+
+/**
+ * Renderer
+ * Draws a board to a terminal, reusing one buffer for every frame and
+ * optionally redrawing only the tiles that changed since the last frame
+ *
+ * @author Charlie Gregg
+ */
+public class Renderer {
+    private final Sweeper board; // the board being drawn
+    private final PrintStream out; // where frames are written
+    private final boolean diff; // true to redraw only changed tiles after the first frame
+    private final StringBuilder frame; // the frame being built, reused every frame
+    private byte[] bytes; // the frame encoded for output, reused every frame
+    private final char[] shown; // the character last drawn for each tile
+    private final BitSet shownHighlights; // the tiles last drawn highlighted
+    private String shownColour; // the colour highlights were last drawn with
+    private final BitSet highlights; // the tiles to highlight in this frame
+    private boolean drawn; // true once a full frame has been drawn
+
+    private final static String HOME_ANSI = "\u001B[H"; // move the cursor to the top left
+    private final static String CLEAR_ANSI = "\u001B[2J"; // clear the terminal
+
+    public Renderer(Sweeper board, PrintStream out, boolean diff) {
+        this.board = board;
+        this.out = out;
+        this.diff = diff;
+        this.frame = new StringBuilder((board.height + 1) * (2 * board.width + 16));
+        this.bytes = new byte[this.frame.capacity()];
+        this.shown = new char[board.width * board.height];
+        this.shownHighlights = new BitSet(board.width * board.height);
+        this.shownColour = Minesweeper.WHITE_BG_ANSI;
+        this.highlights = new BitSet(board.width * board.height);
+        this.drawn = false;
+    }
+    public Renderer(Sweeper board) {
+        this(board, System.out, false);
+    }
+    /**
+     * Get the board being drawn
+     * @return the board
+     */
+    public Sweeper getBoard() {
+        return this.board;
+    }
+    /**
+     * Draw the board
+     * @param highlightedSpaces the spaces to highlight
+     * @param colour the colour to highlight with
+     */
+    public void render(Set<MineTile> highlightedSpaces, String colour) {
+        this.highlights.clear();
+        for (MineTile space : highlightedSpaces) {
+            this.highlights.set(this.board.index(space));
+        }
+        this.frame.setLength(0);
+        if (this.diff && this.drawn && colour.equals(this.shownColour)) {
+            this.buildChanges(colour);
+        } else {
+            this.buildFull(colour);
+        }
+        this.shownHighlights.clear();
+        this.shownHighlights.or(this.highlights);
+        this.shownColour = colour;
+        this.drawn = true;
+        this.flush();
+    }
+    /**
+     * Draw the board without highlights
+     */
+    public void render() {
+        this.render(Set.of(), Minesweeper.WHITE_BG_ANSI);
+    }
+    /**
+     * Build a whole frame, joining runs of highlighted tiles under one colour code
+     * @param colour the colour to highlight with
+     */
+    private void buildFull(String colour) {
+        if (this.diff) {
+            this.frame.append(HOME_ANSI).append(CLEAR_ANSI);
+        }
+        this.frame.append("X ");
+        for (int x = 0; x < this.board.width; x++) {
+            this.frame.append(Integer.toHexString(x)).append(x < 16 ? " " : "");
+        }
+        for (int y = 0; y < this.board.height; y++) {
+            this.frame.append('\n');
+            this.frame.append(Integer.toHexString(y)).append(y < 16 ? " " : "");
+            this.frame.append(Minesweeper.RED_ANSI).append(Minesweeper.WHITE_BG_ANSI);
+            boolean highlighted = false; // true while inside a run of highlighted tiles
+            for (int x = 0; x < this.board.width; x++) {
+                int index = this.board.index(x, y);
+                if (this.highlights.get(index) != highlighted) {
+                    highlighted = !highlighted;
+                    this.frame.append(highlighted ? colour : Minesweeper.WHITE_BG_ANSI);
+                }
+                this.shown[index] = this.board.getDisplay(index);
+                this.frame.append(this.shown[index]).append(' ');
+            }
+            if (highlighted) {
+                this.frame.append(Minesweeper.WHITE_BG_ANSI);
+            }
+            this.frame.append(Minesweeper.RESET_ANSI);
+        }
+        this.frame.append("\n\n");
+    }
+    /**
+     * Build only the tiles that changed since the last frame, moving the cursor to each one
+     * @param colour the colour to highlight with
+     */
+    private void buildChanges(String colour) {
+        boolean changed = false;
+        boolean highlighted = false; // the background last written
+        int cursor = -1; // the tile the cursor is after, or -1 if unknown
+        for (int index = 0; index < this.shown.length; index++) {
+            char symbol = this.board.getDisplay(index);
+            boolean highlight = this.highlights.get(index);
+            if (symbol == this.shown[index] && highlight == this.shownHighlights.get(index)) {
+                continue;
+            }
+            if (!changed) {
+                this.frame.append(Minesweeper.RED_ANSI).append(Minesweeper.WHITE_BG_ANSI);
+                changed = true;
+            }
+            int x = index % this.board.width;
+            int y = index / this.board.width;
+            if (cursor != index || x == 0) {
+                // rows start after their number, the frame starts at the top left
+                int column = Integer.toHexString(y).length() + (y < 16 ? 1 : 0) + 2 * x + 1;
+                this.frame.append("\u001B[").append(y + 2).append(';').append(column).append('H');
+            }
+            if (highlight != highlighted) {
+                highlighted = highlight;
+                this.frame.append(highlighted ? colour : Minesweeper.WHITE_BG_ANSI);
+            }
+            this.frame.append(symbol).append(' ');
+            this.shown[index] = symbol;
+            cursor = index + 1;
+        }
+        if (changed) {
+            this.frame.append(Minesweeper.RESET_ANSI);
+        }
+        this.frame.append("\u001B[").append(this.board.height + 3).append(";1H");
+    }
+    /**
+     * Write the built frame in one go
+     */
+    private void flush() {
+        int length = this.frame.length();
+        if (this.bytes.length < length) {
+            this.bytes = Arrays.copyOf(this.bytes, Math.max(length, this.bytes.length * 2));
+        }
+        for (int i = 0; i < length; i++) {
+            this.bytes[i] = (byte) this.frame.charAt(i); // every character drawn is ASCII
+        }
+        this.out.write(this.bytes, 0, length);
+        this.out.flush();
+    }
+}
@@ -1,7 +1,18 @@
 package minesweeper;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
 
 /**
  * Sweeper
@@ -10,11 +21,13 @@ import java.util.Set;
  * @author Charlie Gregg
  */
 public class Sweeper {
-    private boolean[][] mines; // true if there is a mine at this location
-    private int[][] neighbours; // the number of neighbouring mines
-    private boolean[][] open; // true if the tile has been opened
-    private boolean[][] flags; // true if the tile has been flagged
-    private boolean filled; // true if the board has been populated
+    private ByteBuffer cells; // packed state of every tile, indexed by y*width+x, on the heap or mapped from a file
+    private Chunks chunks; // the tiles of a chunked board, built as they are used, or null if cells holds every tile
+    private volatile boolean filled; // true if the board has been populated
+    private ReentrantLock[] stripes; // locks guarding regions of tiles on a shared board, or null
+    private AtomicInteger remaining; // the exact number of unopened tiles on a shared board, or null
+    private TileTable tiles; // the canonical tiles of boards this size, or null if the board is too big for one
+    private int[] offsets; // index offsets of the surrounding tiles, in index order, for a tile away from the edges
     MineTile hitLocation; // the location of the hit mine
     int width; // the width of the board
     int height; // the height of the board
@@ -22,52 +35,279 @@ public class Sweeper {
     double mineChance; // the chance of a mine being on each tile
     long seed; // the seed used to generate the board
     int remainingSpaces; // the number of unopened tiles
+    private Planting planting; // how mines are placed on the first opening
+    private NoGuessGenerator generator; // finds the layout when planting without guesses
+    private Generation generation; // how the layout was found when planted without guesses, or null
+    private GameWriter record; // where moves are recorded, or null if they are not
 
     private final static String SYMBOLS = " 12345678#FX"; // the symbols used to display the board
 
+    final static int NEIGHBOURS = 0x0F; // bits holding the number of neighbouring mines
+    final static int MINE = 0x10; // bit set if there is a mine at this location
+    final static int OPEN = 0x20; // bit set if the tile has been opened
+    final static int FLAG = 0x40; // bit set if the tile has been flagged
+    public final static int BYTES_PER_CELL = 1; // storage used by each tile
+    public final static int MAX_SURROUNDING = 8; // the most tiles that can surround a tile
+    private final static int STRIPES = 256; // locks on a shared board, a power of 2
+    private final static int STRIPE_BITS = 4; // log2 of the width of the square region sharing a lock
+    private final static int SNAPSHOT_MAGIC = 0x4D534231; // "MSB1", the first bytes of a snapshot file
+    private final static int SNAPSHOT_HEADER = 64; // bytes before the tiles in a snapshot file
+
+    public enum Planting {
+        SAMPLED, // draw random tiles until enough are free
+        SHUFFLED, // draw each mine once from the free tiles
+        SHUFFLED_OPENING, // as shuffled, but keep the whole block around the first tile free
+        NO_GUESS // as shuffled opening, but redrawn until the bot can clear it without guessing, or the ordinary layout if the budget runs out
+    }
+
     public Sweeper(double mineChance, int width, int height, long seed) {
+        this(mineChance, width, height, seed, ByteBuffer.allocate(width * height));
+    }
+    private Sweeper(double mineChance, int width, int height, long seed, ByteBuffer cells) {
         this.mineChance = Math.min(Math.max(mineChance, 0), 0.5);
         this.width = width;
         this.height = height;
         this.mineCount = (int) Math.floor((this.width*this.height - 1) * this.mineChance);
         this.filled = false;
         this.seed = seed;
-        this.neighbours = new int[this.width][this.height];
-        this.mines = new boolean[this.width][this.height];
-        this.flags = new boolean[this.width][this.height];
-        this.open = new boolean[this.width][this.height];
+        this.cells = cells;
+        this.chunks = null;
+        this.stripes = null;
+        this.remaining = null;
+        this.tiles = TileTable.forSize(width, height);
+        this.offsets = new int[] {-width - 1, -width, -width + 1, -1, 1, width - 1, width, width + 1};
         this.remainingSpaces = this.width * this.height;
         this.hitLocation = new MineTile(-1, -1);
+        this.planting = Planting.SAMPLED;
+        this.generator = NoGuessGenerator.DEFAULT;
+        this.record = null;
     }
     public Sweeper(double mineChance, int width, int height) {
         this(mineChance, width, height, new Random().nextLong());
     }
+    public Sweeper(Sweeper board) {
+        this(board.mineChance, board.width, board.height, board.seed);
+        board.copyInto(this);
+    }
     public Sweeper(String board) {
-        this.mineCount = board.length() - board.replace("*", "").length();
-        this.mineChance = (this.mineCount/board.length());
+        this(BoardText.parse(board));
+    }
+    Sweeper(Layout layout) {
+        this(0, layout.width(), layout.height(), 0, layout.cells());
+        this.mineCount = layout.mines();
+        this.mineChance = (double) layout.mines() / (layout.width() * layout.height());
         this.filled = true;
-        this.seed = 0;
-        this.hitLocation = new MineTile(-1, -1);
-        this.init(board);
+        this.countNeighbours();
     }
     /**
-     * Initialise the board
-     * @param board the board string initialise from
+     * Make a board split into chunks which are only built when first used,
+     * so its memory grows with the area played rather than its size
+     * @param mineChance the chance of a mine being on each tile
+     * @param width the width of the board
+     * @param height the height of the board, width times height must fit in an int
+     * @param seed the seed the mines of each chunk are placed from
+     * @param limit the most chunks to keep built at once
+     * @param spill the directory to write evicted chunks to, or null to keep them in memory
+     * @return the board
      */
-    private void init(String board) {
-        String[] rows = board.split("\n"); // rows of the board
-        this.height = rows.length;
-        this.width = rows[0].length();
-        this.neighbours = new int[this.width][this.height];
-        this.mines = new boolean[this.width][this.height];
-        this.flags = new boolean[this.width][this.height];
-        this.open = new boolean[this.width][this.height];
-        this.remainingSpaces = this.width * this.height;
-        for (int y = 0; y < this.height; y++) {
-            for (int x = 0; x < this.width; x++) {
-                if (rows[y].charAt(x) == '*') {
-                    this.setMine(new MineTile(x, y), true);
-                }
+    public static Sweeper chunked(double mineChance, int width, int height, long seed, int limit, Path spill) {
+        Sweeper board = new Sweeper(mineChance, width, height, seed, null);
+        board.chunks = new Chunks(width, height, board.mineChance, seed, limit, spill);
+        board.mineCount = board.chunks.getMineCount();
+        return board;
+    }
+    /**
+     * Make a board several threads can open and flag at once. Tiles are guarded
+     * by locks striped over square regions, so a cascade mostly holds one lock
+     * at a time and threads working apart rarely meet. Recording moves is not
+     * supported on a shared board
+     * @param mineChance the chance of a mine being on each tile
+     * @param width the width of the board
+     * @param height the height of the board
+     * @param seed the seed used to generate the board
+     * @return the board
+     */
+    public static Sweeper shared(double mineChance, int width, int height, long seed) {
+        Sweeper board = new Sweeper(mineChance, width, height, seed);
+        board.stripes = new ReentrantLock[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            board.stripes[i] = new ReentrantLock();
+        }
+        board.remaining = new AtomicInteger(board.remainingSpaces);
+        return board;
+    }
+    /**
+     * Check if this board can be played by several threads at once
+     * @return true if the board is shared
+     */
+    public boolean isShared() {
+        return this.stripes != null;
+    }
+    /**
+     * Get the number of unopened tiles, exact even while a shared board is being played
+     * @return the number of unopened tiles
+     */
+    public int getRemainingSpaces() {
+        return this.remaining != null ? this.remaining.get() : this.remainingSpaces;
+    }
+    /**
+     * Get the lock guarding a tile on a shared board
+     * @param index the index of the tile
+     * @return the lock, or null if the board is not shared
+     */
+    private ReentrantLock stripe(int index) {
+        if (this.stripes == null) {
+            return null;
+        }
+        int region = ((index / this.width) >> STRIPE_BITS) * 31 + ((index % this.width) >> STRIPE_BITS);
+        return this.stripes[region & (STRIPES - 1)];
+    }
+    /**
+     * Check if this board is split into chunks
+     * @return true if the board is chunked
+     */
+    public boolean isChunked() {
+        return this.chunks != null;
+    }
+    /**
+     * Copy the state of this board into another of the same size
+     * @param target the board to overwrite
+     */
+    public void copyInto(Sweeper target) {
+        if (this.chunks != null || target.chunks != null) {
+            throw new UnsupportedOperationException("Chunked boards can't be copied");
+        }
+        target.cells.put(0, this.cells, 0, this.cells.capacity());
+        target.filled = this.filled;
+        target.hitLocation = this.hitLocation;
+        target.mineCount = this.mineCount;
+        target.remainingSpaces = this.remainingSpaces;
+        target.planting = this.planting;
+        target.generator = this.generator;
+        target.generation = this.generation;
+    }
+    /**
+     * Set how mines are placed, only used before the first opening
+     * @param planting the way to place mines
+     */
+    public void setPlanting(Planting planting) {
+        this.planting = planting;
+    }
+    /**
+     * Set the generator used to find layouts when planting without guesses
+     * @param generator the generator, with its attempt and time budget
+     */
+    public void setGenerator(NoGuessGenerator generator) {
+        this.generator = generator;
+    }
+    /**
+     * Save the whole state of the board to a file, a 64 byte header followed by one byte per tile
+     * @param file the file to save to
+     */
+    public void save(Path file) throws IOException {
+        if (this.chunks != null) {
+            throw new UnsupportedOperationException("Chunked boards can't be saved as a snapshot");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = SNAPSHOT_HEADER + (long) this.cells.capacity();
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.putInt(0, SNAPSHOT_MAGIC);
+            map.putInt(4, this.width);
+            map.putInt(8, this.height);
+            map.putInt(12, this.mineCount);
+            map.putLong(16, this.seed);
+            map.putDouble(24, this.mineChance);
+            map.putInt(32, this.remainingSpaces);
+            map.putInt(36, this.hitLocation.x());
+            map.putInt(40, this.hitLocation.y());
+            map.put(44, (byte) (this.filled ? 1 : 0));
+            map.put(45, (byte) this.planting.ordinal());
+            map.put(SNAPSHOT_HEADER, this.cells, 0, this.cells.capacity());
+            map.force();
+            channel.truncate(size);
+        }
+    }
+    /**
+     * Restore a board saved to a file, mapping the tiles straight from the file
+     * so only the parts of the board used are read. The mapping is copy on write,
+     * so moves made on the restored board never reach the file unless it is saved again.
+     * A copy on write mapping needs a channel open for writing, so a snapshot that can
+     * only be read is opened for reading alone and its tiles are copied onto the heap
+     * @param file the file to restore from
+     * @return the restored board
+     */
+    public static Sweeper restore(Path file) throws IOException {
+        boolean writable = Files.isWritable(file); // false for a read only snapshot, which can't be mapped copy on write
+        try (FileChannel channel = writable ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                                            : FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer map = channel.map(writable ? FileChannel.MapMode.PRIVATE : FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (channel.size() < SNAPSHOT_HEADER || map.getInt(0) != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a board snapshot: " + file);
+            }
+            int width = map.getInt(4);
+            int height = map.getInt(8);
+            if (channel.size() != SNAPSHOT_HEADER + (long) width * height) {
+                throw new IOException("Board snapshot is the wrong size: " + file);
+            }
+            ByteBuffer tiles = map.slice(SNAPSHOT_HEADER, width * height);
+            if (!writable) {
+                tiles = ByteBuffer.allocate(width * height).put(0, tiles, 0, width * height);
+            }
+            Sweeper board = new Sweeper(map.getDouble(24), width, height, map.getLong(16), tiles);
+            board.mineCount = map.getInt(12);
+            board.remainingSpaces = map.getInt(32);
+            board.hitLocation = new MineTile(map.getInt(36), map.getInt(40));
+            board.filled = map.get(44) != 0;
+            board.planting = Planting.values()[map.get(45)];
+            return board;
+        }
+    }
+    /**
+     * Record every move made on this board from now on, starting a new game in the record.
+     * Moves on a shared board have no single order, so they can't be recorded
+     * @param record the record to write to, or null to stop recording
+     */
+    public void setRecord(GameWriter record) {
+        if (record != null && this.stripes != null) {
+            throw new UnsupportedOperationException("Moves on a shared board can't be recorded");
+        }
+        this.record = record;
+        if (record != null) {
+            record.begin(this);
+        }
+    }
+    /**
+     * Get how mines are placed
+     * @return the way mines are placed
+     */
+    public Planting getPlanting() {
+        return this.planting;
+    }
+    /**
+     * Get how the layout was found when the board was planted without guesses.
+     * If no layout could be cleared without guessing in the generator's budget,
+     * the board falls back to the ordinary layout and the result isn't solvable
+     * @return the generation, or null if the board wasn't planted without guesses yet,
+     * or is chunked and so only kept its opening
+     */
+    public Generation getGeneration() {
+        return this.generation;
+    }
+    /**
+     * Place mines onto the grid if they have not been placed yet
+     * @param safe the tile to keep free of mines
+     */
+    void populate(MineTile safe) {
+        if (this.filled) {
+            return;
+        }
+        if (this.stripes == null) {
+            this.plantMines(safe);
+            return;
+        }
+        synchronized (this) {
+            if (!this.filled) {
+                this.plantMines(safe); // the first opening on a shared board wins, the rest wait for it
             }
         }
     }
@@ -76,16 +316,126 @@ public class Sweeper {
      * @param safe the tile to ignore
      */
     private void plantMines(MineTile safe) {
+        if (this.chunks != null) {
+            // chunks can't be checked by playing them whole, so no guess boards keep just the opening
+            boolean open = this.planting == Planting.SHUFFLED_OPENING || this.planting == Planting.NO_GUESS;
+            int[] opening = open ? this.getOpening(safe) : new int[] {this.index(safe)};
+            this.chunks.plant(opening, this.index(safe)); // each chunk places its own mines when built
+            this.filled = true;
+            return;
+        }
+        if (this.planting == Planting.SAMPLED) {
+            this.sampleMines(safe);
+        } else if (this.planting == Planting.SHUFFLED_OPENING) {
+            this.shuffleMines(this.getOpening(safe), this.seed);
+        } else if (this.planting == Planting.NO_GUESS) {
+            this.generation = this.generator.generate(this.mineChance, this.width, this.height, this.seed, safe);
+            this.shuffleMines(this.getOpening(safe), this.generation.seed());
+        } else {
+            this.shuffleMines(new int[] {this.index(safe)}, this.seed);
+        }
+        this.filled = true;
+    }
+    /**
+     * Place mines by drawing random tiles until enough have been placed
+     * @param safe the tile to ignore
+     */
+    private void sampleMines(MineTile safe) {
         int placed = 0;
+        int safeIndex = this.index(safe);
         Random rand = new Random(this.seed);
         while (placed < this.mineCount) {
-            MineTile space = new MineTile(rand.nextInt(this.width), rand.nextInt(this.height));
+            int space = this.index(rand.nextInt(this.width), rand.nextInt(this.height));
             if (this.isMine(space)) {continue;}
-            if (space.equals(safe)) {continue;}
+            if (space == safeIndex) {continue;}
             this.setMine(space, true);
             placed++;
         }
-        this.filled = true;
+    }
+    /**
+     * Place mines with Floyd's variant of a partial Fisher-Yates shuffle,
+     * which takes exactly one draw per mine, then count all neighbours at once
+     * @param safe the sorted indices of tiles to keep free
+     * @param seed the seed to draw the mines from
+     */
+    private void shuffleMines(int[] safe, long seed) {
+        int spaces = this.cells.capacity() - safe.length; // the number of tiles that can hold a mine
+        Random rand = new Random(seed);
+        for (int j = spaces - this.mineCount; j < spaces; j++) {
+            int space = this.skipSafe(rand.nextInt(j + 1), safe);
+            if (this.isMine(space)) {
+                space = this.skipSafe(j, safe); // j has never been drawn before
+            }
+            this.setBit(space, MINE, true);
+        }
+        this.countNeighbours();
+    }
+    /**
+     * Map a position among the free tiles to a tile index
+     * @param position the position among the free tiles
+     * @param safe the sorted indices of tiles to keep free
+     * @return the index of the tile
+     */
+    private int skipSafe(int position, int[] safe) {
+        for (int index : safe) {
+            if (index <= position) {
+                position++;
+            }
+        }
+        return position;
+    }
+    /**
+     * Get the tiles to keep free for an opening around a tile,
+     * or just the tile if the board is too full to fit the opening
+     * @param safe the tile to open
+     * @return the sorted indices of the tiles to keep free
+     */
+    private int[] getOpening(MineTile safe) {
+        int[] opening = new int[Sweeper.MAX_SURROUNDING + 1];
+        int count = this.getSurrounding(this.index(safe), opening, false);
+        opening[count++] = this.index(safe);
+        if (this.width * this.height - count < this.mineCount) {
+            return new int[] {this.index(safe)};
+        }
+        opening = Arrays.copyOf(opening, count);
+        Arrays.sort(opening);
+        return opening;
+    }
+    /**
+     * Count the neighbouring mines of every tile in one pass, keeping a running
+     * sum of mines down each column and then across each row
+     */
+    private void countNeighbours() {
+        int[] columns = new int[this.width]; // mines in each column from the row above to the row below
+        for (int x = 0; x < this.width; x++) {
+            columns[x] = this.mineAt(x, 0) + this.mineAt(x, 1);
+        }
+        for (int y = 0; y < this.height; y++) {
+            if (y > 0) {
+                for (int x = 0; x < this.width; x++) {
+                    columns[x] += this.mineAt(x, y + 1) - this.mineAt(x, y - 2);
+                }
+            }
+            int window = columns[0] + (this.width > 1 ? columns[1] : 0); // mines in the 3x3 block
+            for (int x = 0; x < this.width; x++) {
+                int index = y * this.width + x;
+                int count = window - this.mineAt(x, y);
+                this.cells.put(index, (byte) ((this.cells.get(index) & ~NEIGHBOURS) | count));
+                window += (x + 2 < this.width ? columns[x + 2] : 0) - (x > 0 ? columns[x - 1] : 0);
+            }
+        }
+    }
+    /**
+     * Get whether there is a mine at a position, treating the outside of the board as empty
+     * @param x the x position
+     * @param y the y position
+     * @return 1 if there is a mine, 0 otherwise
+     */
+    private int mineAt(int x, int y) {
+        if (y < 0 || y >= this.height) {
+            return 0;
+        }
+        return (this.cells.get(y * this.width + x) & MINE) >> 4;
     }
     /**
      * Check if a space is a mine
@@ -93,7 +443,15 @@ public class Sweeper {
      * @return true if the space is a mine
      */
     private boolean isMine(MineTile space) {
-        return this.mines[space.x()][space.y()];
+        return this.isMine(this.index(space));
+    }
+    /**
+     * Check if a space is a mine
+     * @param index the index of the space to check
+     * @return true if the space is a mine
+     */
+    boolean isMine(int index) {
+        return (this.get(index) & MINE) != 0;
     }
     /**
      * Check if a tile is open
@@ -101,7 +459,15 @@ public class Sweeper {
      * @return true if the space is open
      */
     public boolean isOpen(MineTile space) {
-        return this.open[space.x()][space.y()];
+        return this.isOpen(this.index(space));
+    }
+    /**
+     * Check if a tile is open
+     * @param index the index of the space to check
+     * @return true if the space is open
+     */
+    public boolean isOpen(int index) {
+        return (this.peek(index) & OPEN) != 0;
     }
     /**
      * Check if a tile is flagged
@@ -109,34 +475,89 @@ public class Sweeper {
      * @return true if the space is flagged
      */
     public boolean isFlagged(MineTile space) {
-        return this.flags[space.x()][space.y()];
+        return this.isFlagged(this.index(space));
+    }
+    /**
+     * Check if a tile is flagged
+     * @param index the index of the space to check
+     * @return true if the space is flagged
+     */
+    public boolean isFlagged(int index) {
+        return (this.peek(index) & FLAG) != 0;
     }
     /**
      * Set a space to be a mine or not
-     * @param space the space to set
+     * @param index the index of the space to set
      * @param mine whether the space is a mine
      */
-    private void setMine(MineTile space, boolean mine) {
-        if (this.mines[space.x()][space.y()] == mine) {
+    private void setMine(int index, boolean mine) {
+        if (this.isMine(index) == mine) {
             return;
         }
-        int neighbourChange = (!this.mines[space.x()][space.y()] && mine) ? 1 : -1;
-
-        this.mines[space.x()][space.y()] = mine;
-        Set<MineTile> surrounding = this.getSurrounding(space);
-        for (MineTile tile : surrounding) {
-            this.neighbours[tile.x()][tile.y()] += neighbourChange;
+        int neighbourChange = mine ? 1 : -1;
+        this.setBit(index, MINE, mine);
+        // walked in place rather than through a buffer, planting calls this for every mine
+        int x = index % this.width;
+        int y = index / this.width;
+        if (x > 0 && x < this.width - 1 && y > 0 && y < this.height - 1) {
+            for (int offset : this.offsets) {
+                this.addNeighbours(index + offset, neighbourChange);
+            }
+            return;
+        }
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, this.height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, this.width - 1); nx++) {
+                int neighbour = ny * this.width + nx;
+                if (neighbour != index) {
+                    this.addNeighbours(neighbour, neighbourChange);
+                }
+            }
         }
     }
+    /**
+     * Change the count of neighbouring mines stored for a space
+     * @param index the index of the space
+     * @param change the amount to add to the count
+     */
+    private void addNeighbours(int index, int change) {
+        this.cells.put(index, (byte) (this.cells.get(index) + change));
+    }
     /**
      * Set a tile to be open
      * @param space the space to set
      */
     private void setOpen(MineTile space) {
-        if (!this.isOpen(space)) {
+        this.openTile(this.index(space), OPEN);
+    }
+    /**
+     * Open a tile unless it is already open or has one of the given bits set,
+     * in one step on a shared board so each tile is only counted once
+     * @param index the index of the tile
+     * @param blocking the bits which stop the tile opening, including OPEN
+     * @return true if this call opened the tile
+     */
+    private boolean openTile(int index, int blocking) {
+        ReentrantLock lock = this.stripe(index);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            byte state = this.get(index);
+            if ((state & blocking) != 0) {
+                return false;
+            }
+            this.put(index, (byte) (state | OPEN));
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        if (this.remaining != null) {
+            this.remainingSpaces = this.remaining.decrementAndGet(); // only a hint, read remaining for the exact count
+        } else {
             this.remainingSpaces -= 1;
-            this.open[space.x()][space.y()] = true;
         }
+        return true;
     }
     /**
      * Set a tile to be flagged
@@ -144,7 +565,78 @@ public class Sweeper {
      * @param flag whether to flag the space
      */
     public void setFlag(MineTile space, boolean flag) {
-        this.flags[space.x()][space.y()] = flag;
+        int index = this.index(space);
+        if (this.record != null && this.isFlagged(index) != flag) {
+            this.record.flag(index, flag);
+        }
+        this.setBit(index, FLAG, flag);
+    }
+    /**
+     * Get the packed state of a tile, building its chunk if the board is chunked
+     * @param index the index of the tile
+     * @return the packed state
+     */
+    private byte get(int index) {
+        return this.chunks == null ? this.cells.get(index) : this.chunks.get(index);
+    }
+    /**
+     * Get the packed state of a tile without building its chunk,
+     * only the open and flag bits can be relied on
+     * @param index the index of the tile
+     * @return the packed state
+     */
+    private byte peek(int index) {
+        return this.chunks == null ? this.cells.get(index) : this.chunks.peek(index);
+    }
+    /**
+     * Set the packed state of a tile
+     * @param index the index of the tile
+     * @param value the packed state
+     */
+    private void put(int index, byte value) {
+        if (this.chunks == null) {
+            this.cells.put(index, value);
+        } else {
+            this.chunks.put(index, value);
+        }
+    }
+    /**
+     * Run an action on every open tile, in index order unless the board is chunked
+     * @param action the action to run with the index of each open tile
+     */
+    public void forEachOpen(IntConsumer action) {
+        if (this.chunks != null) {
+            this.chunks.forEachOpen(action);
+            return;
+        }
+        for (int index = 0; index < this.cells.capacity(); index++) {
+            if ((this.cells.get(index) & OPEN) != 0) {
+                action.accept(index);
+            }
+        }
+    }
+    /**
+     * Set or clear a state bit of a tile
+     * @param index the index of the tile
+     * @param bit the bit to change
+     * @param value whether the bit should be set
+     */
+    private void setBit(int index, int bit, boolean value) {
+        ReentrantLock lock = this.stripe(index);
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            if (value) {
+                this.put(index, (byte) (this.get(index) | bit));
+            } else {
+                this.put(index, (byte) (this.get(index) & ~bit));
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
     }
     /**
      * Get the number of neighbouring mines
@@ -152,7 +644,71 @@ public class Sweeper {
      * @return the number of neighbouring mines
      */
     private int getNeighbours(MineTile space) {
-        return this.neighbours[space.x()][space.y()];
+        return this.getNeighbours(this.index(space));
+    }
+    /**
+     * Get the number of mines neighbouring an open tile
+     * @param index the index of the space to check
+     * @return the number of neighbouring mines, or -1 if the tile is not open
+     */
+    public int getNeighbours(int index) {
+        return this.isOpen(index) ? this.get(index) & NEIGHBOURS : -1;
+    }
+    /**
+     * Get the number of mines neighbouring a tile whether it is open or not,
+     * for analysing a layout rather than playing it
+     * @param index the index of the space to check
+     * @return the number of neighbouring mines
+     */
+    int getMineNeighbours(int index) {
+        return this.get(index) & NEIGHBOURS;
+    }
+    /**
+     * Get the index of a space in the packed cell array
+     * @param space the space to find
+     * @return the index of the space
+     */
+    public int index(MineTile space) {
+        return this.index(space.x(), space.y());
+    }
+    /**
+     * Get the index of a position in the packed cell array
+     * @param x the x position
+     * @param y the y position
+     * @return the index of the position
+     */
+    public int index(int x, int y) {
+        return y * this.width + x;
+    }
+    /**
+     * Get the space at an index of the packed cell array
+     * @param index the index of the space
+     * @return the space at that index
+     */
+    public MineTile getTile(int index) {
+        if (this.tiles == null) {
+            return new MineTile(index % this.width, index / this.width);
+        }
+        return this.tiles.get(index);
+    }
+    /**
+     * Get the space at a position
+     * @param x the x position
+     * @param y the y position
+     * @return the space at that position
+     */
+    public MineTile getTile(int x, int y) {
+        return this.getTile(this.index(x, y));
+    }
+    /**
+     * Get the number of bytes used to store the board state
+     * @return the size of the board state in bytes
+     */
+    public long getFootprint() {
+        if (this.chunks != null) {
+            return this.chunks.getFootprint();
+        }
+        return (long) this.cells.capacity() * Sweeper.BYTES_PER_CELL;
     }
     /**
      * Get all tiles touching a space which are unopened
@@ -162,17 +718,6 @@ public class Sweeper {
     public Set<MineTile> getTouching(MineTile space) {
         return this.getSurrounding(space, true);
     }
-    /**
-     * Add a space to a set given a condition
-     * @param spaces the set of spaces
-     * @param space the space to add
-     * @param onlyClosed whether to only add closed spaces
-     */
-    private void addIf(Set<MineTile> spaces, MineTile space, boolean onlyClosed) {
-        if (!onlyClosed || !this.isOpen(space)) {
-            spaces.add(space);
-        }
-    }
     /**
      * Get the spaces surrounding a space
      * @param space the space to check
@@ -180,30 +725,11 @@ public class Sweeper {
      * @return the spaces surrounding the space
      */
     public Set<MineTile> getSurrounding(MineTile space, boolean onlyClosed) {
+        int[] surrounding = new int[Sweeper.MAX_SURROUNDING];
+        int count = this.getSurrounding(this.index(space), surrounding, onlyClosed);
         Set<MineTile> spaces = new HashSet<>();
-        if (space.y() > 0) {
-            this.addIf(spaces, new MineTile(space.x(), space.y() - 1), onlyClosed);
-        }
-        if (space.y() < this.height - 1) {
-            this.addIf(spaces, new MineTile(space.x(), space.y() + 1), onlyClosed);
-        }
-        if (space.x() > 0) {
-            this.addIf(spaces, new MineTile(space.x() - 1, space.y()), onlyClosed);
-            if (space.y() > 0) {
-                this.addIf(spaces, new MineTile(space.x() - 1, space.y() - 1), onlyClosed);
-            }
-            if (space.y() < this.height - 1) {
-                this.addIf(spaces, new MineTile(space.x() - 1, space.y() + 1), onlyClosed);
-            }
-        }
-        if (space.x() < this.width - 1) {
-            this.addIf(spaces, new MineTile(space.x() + 1, space.y()), onlyClosed);
-            if (space.y() > 0) {
-                this.addIf(spaces, new MineTile(space.x() + 1, space.y() - 1), onlyClosed);
-            }
-            if (space.y() < this.height - 1) {
-                this.addIf(spaces, new MineTile(space.x() + 1, space.y() + 1), onlyClosed);
-            }
+        for (int i = 0; i < count; i++) {
+            spaces.add(this.getTile(surrounding[i]));
         }
         return spaces;
     }
@@ -215,15 +741,100 @@ public class Sweeper {
     public Set<MineTile> getSurrounding(MineTile space) {
         return this.getSurrounding(space, false);
     }
+    /**
+     * Write the indices of the spaces surrounding a space into a buffer
+     * @param index the index of the space to check
+     * @param buffer the buffer to fill, at least MAX_SURROUNDING long
+     * @param onlyClosed whether to only get closed spaces
+     * @return the number of indices written
+     */
+    public int getSurrounding(int index, int[] buffer, boolean onlyClosed) {
+        int count = this.surrounding(index, buffer);
+        if (!onlyClosed) {
+            return count;
+        }
+        int closed = 0;
+        for (int i = 0; i < count; i++) {
+            if (!this.isOpen(buffer[i])) {
+                buffer[closed++] = buffer[i];
+            }
+        }
+        return closed;
+    }
+    /**
+     * Write the indices of every space surrounding a space into a buffer, in index order
+     * A tile away from the edges, which is almost every tile of a large board, takes the
+     * offset table straight with no edge checks, so the JIT can unroll the copy
+     * @param index the index of the space to check
+     * @param buffer the buffer to fill, at least MAX_SURROUNDING long
+     * @return the number of indices written
+     */
+    private int surrounding(int index, int[] buffer) {
+        int x = index % this.width;
+        int y = index / this.width;
+        if (x > 0 && x < this.width - 1 && y > 0 && y < this.height - 1) {
+            for (int i = 0; i < Sweeper.MAX_SURROUNDING; i++) {
+                buffer[i] = index + this.offsets[i];
+            }
+            return Sweeper.MAX_SURROUNDING;
+        }
+        int count = 0;
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, this.height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, this.width - 1); nx++) {
+                int neighbour = ny * this.width + nx;
+                if (neighbour != index) {
+                    buffer[count++] = neighbour;
+                }
+            }
+        }
+        return count;
+    }
+    /**
+     * Write the indices of the unopened spaces touching a space into a buffer
+     * @param index the index of the space to check
+     * @param buffer the buffer to fill, at least MAX_SURROUNDING long
+     * @return the number of indices written
+     */
+    public int getTouching(int index, int[] buffer) {
+        return this.getSurrounding(index, buffer, true);
+    }
+    /**
+     * Run an action on the index of every space surrounding a space
+     * @param index the index of the space to check
+     * @param onlyClosed whether to only visit closed spaces
+     * @param action the action to run on each index
+     */
+    public void forEachSurrounding(int index, boolean onlyClosed, IntConsumer action) {
+        int x = index % this.width;
+        int y = index / this.width;
+        if (x > 0 && x < this.width - 1 && y > 0 && y < this.height - 1) {
+            for (int offset : this.offsets) {
+                int neighbour = index + offset;
+                if (!onlyClosed || !this.isOpen(neighbour)) {
+                    action.accept(neighbour);
+                }
+            }
+            return;
+        }
+        for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, this.height - 1); ny++) {
+            for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, this.width - 1); nx++) {
+                int neighbour = ny * this.width + nx;
+                if (neighbour != index && (!onlyClosed || !this.isOpen(neighbour))) {
+                    action.accept(neighbour);
+                }
+            }
+        }
+    }
     /**
      * Attempt to open a tile
      * @param space the space to open
      * @return the result of opening the tile
      */
     public Open tryOpen(MineTile space) {
-        if (!this.filled) {
-            this.plantMines(space);
+        if (this.record != null) {
+            this.record.open(this.index(space));
         }
+        this.populate(space);
         if (this.isFlagged(space)) {
             return new Open(0, Open.Tag.FLAG);
         }
@@ -232,20 +843,66 @@ public class Sweeper {
             return new Open(0, Open.Tag.LOSE);
         }
         this.setOpen(space);
-        Open.Tag tag = this.remainingSpaces == this.mineCount ? Open.Tag.WIN : Open.Tag.NONE;
+        Open.Tag tag = this.getRemainingSpaces() == this.mineCount ? Open.Tag.WIN : Open.Tag.NONE;
         return new Open(this.getNeighbours(space), tag);
     }
+    /**
+     * Open a tile, and if it has no neighbouring mines, every tile
+     * connected to it through other tiles with no neighbouring mines
+     * @param space the space to open
+     * @return the tiles revealed and the result of opening them
+     */
+    public Cascade cascade(MineTile space) {
+        int start = this.index(space);
+        boolean wasOpen = this.isOpen(start);
+        Open response = this.tryOpen(space);
+        if (wasOpen || response.tag() == Open.Tag.LOSE || response.tag() == Open.Tag.FLAG) {
+            return new Cascade(new int[0], response.tag());
+        }
+        // the revealed tiles double as the queue, opening a tile marks it as visited
+        int[] revealed = new int[16];
+        int[] surrounding = new int[Sweeper.MAX_SURROUNDING];
+        int count = 0;
+        revealed[count++] = start;
+        for (int i = 0; i < count; i++) {
+            int index = revealed[i];
+            if ((this.get(index) & NEIGHBOURS) != 0) {
+                continue;
+            }
+            int around = this.surrounding(index, surrounding);
+            for (int j = 0; j < around; j++) {
+                int neighbour = surrounding[j];
+                if (!this.openTile(neighbour, OPEN | FLAG)) {
+                    continue;
+                }
+                if (count == revealed.length) {
+                    revealed = Arrays.copyOf(revealed, count * 2);
+                }
+                revealed[count++] = neighbour;
+            }
+        }
+        Open.Tag tag = this.getRemainingSpaces() == this.mineCount ? Open.Tag.WIN : Open.Tag.NONE;
+        return new Cascade(Arrays.copyOf(revealed, count), tag);
+    }
     /**
      * Get the display character for a space
      * @param space the space to display
      * @return the character to display
      */
     public char getDisplay(MineTile space) {
-        if (this.isOpen(space)) {
-            return Sweeper.SYMBOLS.charAt(this.getNeighbours(space));
-        } else if (this.hitLocation.equals(space)) {
+        return this.getDisplay(this.index(space));
+    }
+    /**
+     * Get the display character for a space
+     * @param index the index of the space to display
+     * @return the character to display
+     */
+    public char getDisplay(int index) {
+        if (this.isOpen(index)) {
+            return Sweeper.SYMBOLS.charAt(this.get(index) & NEIGHBOURS);
+        } else if (this.hitLocation.x() >= 0 && this.index(this.hitLocation) == index) {
             return Sweeper.SYMBOLS.charAt(11);
-        } else if (this.isFlagged(space)) {
+        } else if (this.isFlagged(index)) {
             return Sweeper.SYMBOLS.charAt(10);
         } else{
             return Sweeper.SYMBOLS.charAt(9);
@@ -257,10 +914,8 @@ public class Sweeper {
      */
     public Set<MineTile> getAllSpaces() {
         Set<MineTile> spaces = new HashSet<>(this.height * this.width);
-        for (int y = 0; y < this.height; y++) {
-            for (int x = 0; x < this.width; x++) {
-                spaces.add(new MineTile(x, y));
-            }
+        for (int index = 0; index < this.width * this.height; index++) {
+            spaces.add(this.getTile(index));
         }
         return spaces;
     }
@@ -285,4 +940,19 @@ record Open(int neighbours, Tag tag) {
     public Tag tag() {
         return this.tag;
     }
+}
+/**
+ * Cascade
+ * The result of opening a tile and its connected empty area
+ * 
+ * @param revealed the indices of the tiles opened, in the order they were opened
+ * @param tag the result of opening the tiles
+ */
+record Cascade(int[] revealed, Open.Tag tag) {
+    public int[] revealed() {
+        return this.revealed;
+    }
+    public Open.Tag tag() {
+        return this.tag;
+    }
 }
\ No newline at end of file